@@ -20,18 +20,24 @@ async function writeJob(id, payload) {
   await fs.writeFile(file, JSON.stringify(payload, null, 2));
 }
 
+// Multiplexes many requests over one warm JVM using userRunner's -PROTOCOL mode:
+// each request is written as "<id>\t<query>" and answered by a JSON line carrying the same id,
+// in completion order, so several queries run concurrently against one shared index.
 class WarmJava {
   constructor(jarPath, cwd) {
     this.jarPath = jarPath;
     this.cwd = cwd;
     this.child = null;
     this.buffer = '';
-  this.inflight = null; // { resolve, reject, corrId }
+    this.inflight = new Map(); // id -> { resolve, reject }
+    this.nextId = 0;
     this.start();
   }
 
   start() {
-    const args = ['-Dfile.encoding=UTF-8', '-jar', this.jarPath, '.'];
+    const args = ['-Dfile.encoding=UTF-8', '-jar', this.jarPath, '.', '-PROTOCOL'];
+    if (process.env.JAVA_WORKERS) args.push(`-WORKERS=${process.env.JAVA_WORKERS}`);
+    this.buffer = '';
     this.child = spawn('java', args, { cwd: this.cwd, stdio: ['pipe', 'pipe', 'pipe'] });
     this.child.stdout.setEncoding('utf8');
     this.child.stderr.setEncoding('utf8');
@@ -39,71 +45,51 @@ class WarmJava {
     this.child.stderr.on('data', (d) => console.error(`[Java stderr ${process.pid}]`, d));
     this.child.on('exit', (code, signal) => {
       console.error(`[WarmJava] exited code=${code} signal=${signal} (pid ${process.pid}), restarting...`);
-      // Reject current inflight if any
-      if (this.inflight) {
-        this.inflight.reject(new Error('java_exited'));
-        this.inflight = null;
-      }
+      // Reject everything in flight; the callers decide whether to retry
+      for (const { reject } of this.inflight.values()) reject(new Error('java_exited'));
+      this.inflight.clear();
       setTimeout(() => this.start(), 1000);
     });
   }
 
   onStdout(chunk) {
     this.buffer += chunk;
-    // Try to extract one JSON object from buffer using brace counting
-    const start = this.buffer.indexOf('{');
-    if (start === -1) return;
-    let count = 0;
-    let endIndex = -1;
-    for (let i = start; i < this.buffer.length; i++) {
-      const c = this.buffer[i];
-      if (c === '{') count++;
-      else if (c === '}') {
-        count--;
-        if (count === 0) { endIndex = i; break; }
-      }
-    }
-    if (endIndex !== -1) {
-      const jsonText = this.buffer.slice(start, endIndex + 1);
-      const rest = this.buffer.slice(endIndex + 1);
-      this.buffer = rest; // keep any trailing output for next round
-      if (this.inflight) {
-        this.inflight.resolve(jsonText);
-        this.inflight = null;
-      }
+    let newline;
+    while ((newline = this.buffer.indexOf('\n')) !== -1) {
+      const line = this.buffer.slice(0, newline).trim();
+      this.buffer = this.buffer.slice(newline + 1);
+      if (!line) continue;
+      let reply;
+      try { reply = JSON.parse(line); } catch { continue; }
+      const pending = reply.id == null ? null : this.inflight.get(String(reply.id));
+      if (!pending) continue; // ready/cache lines, or a request already canceled here
+      this.inflight.delete(String(reply.id));
+      if (reply.error) pending.reject(new Error(reply.error));
+      else pending.resolve(line);
     }
   }
 
   async request(query, corrId) {
-    // Only one at a time expected; ensure no overlap
-    if (this.inflight) throw new Error('inflight_request');
+    const id = String(corrId || `req-${++this.nextId}`).replace(/\s+/g, '_'); // ids must not contain the delimiters
+    if (this.inflight.has(id)) throw new Error('inflight_request');
     return new Promise((resolve, reject) => {
-      this.inflight = { resolve, reject, corrId };
+      this.inflight.set(id, { resolve, reject });
       try {
-        this.child.stdin.write(String(query).trim() + '\n');
+        this.child.stdin.write(`${id}\t${String(query).replace(/[\t\r\n]+/g, ' ').trim()}\n`);
       } catch (e) {
-        this.inflight = null;
+        this.inflight.delete(id);
         reject(e);
       }
     });
   }
 
-  // Best-effort cancel current request by sending a special line the Java
-  // side understands as termination, or closing stdin if unsupported.
+  // Cancels one request without disturbing the others sharing the JVM.
   cancel(corrId) {
-    if (!this.inflight || (corrId && this.inflight.corrId !== corrId)) return;
-    // Reset state so next request can proceed
-    const inflight = this.inflight;
-    this.inflight = null;
-    try {
-      // Try graceful termination first
-      this.child.kill('SIGTERM');
-    } catch {}
-    // Force kill if it doesn't exit promptly
-    setTimeout(() => {
-      try { this.child.kill('SIGKILL'); } catch {}
-    }, 1500);
-    // Reject the waiting promise so caller can mark canceled
+    const id = String(corrId).replace(/\s+/g, '_');
+    const inflight = this.inflight.get(id);
+    if (!inflight) return;
+    this.inflight.delete(id);
+    try { this.child.stdin.write(`cancel ${id}\n`); } catch {}
     inflight.reject(new Error('canceled'));
   }
 }
@@ -140,7 +126,8 @@ async function start() {
   const ch = await conn.createChannel();
   await ch.assertQueue(QUEUE, { durable: true });
   await ch.assertExchange(CANCEL_EXCHANGE, 'fanout', { durable: false });
-  ch.prefetch(1); // one task at a time per worker
+  // One warm JVM answers several queries at once; JAVA_CONCURRENCY bounds how many are in flight
+  ch.prefetch(Number(process.env.JAVA_CONCURRENCY || require('os').cpus().length));
   console.log(`[Worker ${process.pid}] waiting for messages in ${QUEUE}`);
 
   // Start warm Java process rooted at dataDir
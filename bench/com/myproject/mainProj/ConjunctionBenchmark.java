@@ -0,0 +1,106 @@
+package com.myproject.mainProj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+// **File:** ConjunctionBenchmark.java
+// **Purpose:** Compares the old HashSet.retainAll intersection with Conjunction on synthetic postings.
+// Run with: gradle benchmark [-Pdocs=N]
+public class ConjunctionBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 15;
+
+    public static void main(String[] args) {
+        int numDocs = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        double[] densities = {0.001, 0.05, 0.4, 0.8};
+        Random random = new Random(42);
+
+        List<HashMap<Integer, List<Integer>>> legacyTerms = new ArrayList<>();
+        List<Postings> postingsTerms = new ArrayList<>();
+        for (double density : densities) {
+            HashMap<Integer, List<Integer>> legacy = new HashMap<>();
+            int[] docIds = new int[numDocs];
+            int df = 0;
+            for (int docId = 1; docId <= numDocs; docId++) {
+                if (random.nextDouble() < density) {
+                    legacy.put(docId, List.of(1));
+                    docIds[df++] = docId;
+                }
+            }
+            int[][] positions = new int[df][];
+            Arrays.fill(positions, new int[] {1});
+            legacyTerms.add(legacy);
+            postingsTerms.add(Postings.encode(Arrays.copyOf(docIds, df), positions));
+        }
+
+        System.out.println("docs=" + numDocs + " dfs=" + Arrays.toString(postingsTerms.stream().mapToInt(Postings::docFreq).toArray()));
+        report("rare + common (2 terms)", legacyTerms.subList(0, 1), postingsTerms.subList(0, 1), legacyTerms.get(3), postingsTerms.get(3));
+        report("common + common (2 terms)", legacyTerms.subList(2, 3), postingsTerms.subList(2, 3), legacyTerms.get(3), postingsTerms.get(3));
+        report("all four terms", legacyTerms.subList(0, 3), postingsTerms.subList(0, 3), legacyTerms.get(3), postingsTerms.get(3));
+    }
+
+    // The most common term is placed first, which is what an unlucky HashSet iteration order does to the old path.
+    private static void report(String label, List<HashMap<Integer, List<Integer>>> legacyRest, List<Postings> postingsRest,
+            HashMap<Integer, List<Integer>> legacyFirst, Postings postingsFirst) {
+        List<HashMap<Integer, List<Integer>>> legacy = new ArrayList<>();
+        legacy.add(legacyFirst);
+        legacy.addAll(legacyRest);
+        List<Postings> postings = new ArrayList<>();
+        postings.add(postingsFirst);
+        postings.addAll(postingsRest);
+
+        long legacyNanos = median(() -> retainAll(legacy));
+        long conjunctionNanos = median(() -> conjunction(postings));
+        System.out.printf("%-28s retainAll: %8.3f ms   conjunction: %8.3f ms   (%d matches)%n", label,
+                legacyNanos / 1e6, conjunctionNanos / 1e6, conjunction(postings));
+    }
+
+    private static int retainAll(List<HashMap<Integer, List<Integer>>> terms) {
+        Set<Integer> result = null;
+        for (Map<Integer, List<Integer>> term : terms) {
+            if (result == null) {
+                result = new HashSet<>(term.keySet());
+            } else {
+                result.retainAll(term.keySet());
+            }
+        }
+        return result.size();
+    }
+
+    private static int conjunction(List<Postings> terms) {
+        Conjunction conjunction = new Conjunction(terms);
+        int matches = 0;
+        while (conjunction.nextDoc() != PostingsCursor.NO_MORE_DOCS) {
+            matches++;
+        }
+        return matches;
+    }
+
+    private interface Task {
+        int run();
+    }
+
+    private static long median(Task task) {
+        long[] samples = new long[MEASURED_ROUNDS];
+        int sink = 0;
+        for (int i = 0; i < WARMUP_ROUNDS + MEASURED_ROUNDS; i++) {
+            long start = System.nanoTime();
+            sink += task.run();
+            if (i >= WARMUP_ROUNDS) {
+                samples[i - WARMUP_ROUNDS] = System.nanoTime() - start;
+            }
+        }
+        if (sink == Integer.MIN_VALUE) {
+            System.out.println(sink);
+        }
+        Arrays.sort(samples);
+        return samples[MEASURED_ROUNDS / 2];
+    }
+}
@@ -0,0 +1,97 @@
+package com.myproject.mainProj;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// **File:** Analyzer.java
+// **Purpose:** The one tokenizer behind indexing, document storage, snippets and queries, so they all agree on
+// what a token is and where it sits. A single hand-written pass over the text: with html, everything from '<' to
+// the next '>' is skipped; every run of ASCII letters and digits is a token, lower-cased; anything else separates
+// tokens. Positions are 1-based and count every token, so a stopword that is dropped later still takes its slot
+// and index positions, phrase offsets and snippet windows line up. An instance adds the query-side steps on top:
+// the stoplist and (optionally) stemming.
+final class Analyzer {
+
+    // Receives each token in a buffer that is overwritten by the next one.
+    interface TokenSink {
+        void token(char[] buffer, int length, int position);
+    }
+
+    private final Set<String> stoplist;
+    private final StemCache stems; // null leaves tokens unstemmed
+
+    Analyzer(Set<String> stoplist, StemCache stems) {
+        this.stoplist = stoplist;
+        this.stems = stems;
+    }
+
+    public boolean isStopword(String token) {
+        return stoplist.contains(token);
+    }
+
+    public String stem(String token) {
+        return stems == null ? token : stems.stem(token);
+    }
+
+    // Allocates nothing beyond the token buffer (which only grows for tokens longer than 64 chars).
+    static void tokenize(CharSequence text, boolean html, TokenSink sink) {
+        char[] buffer = new char[64];
+        int length = 0;
+        int position = 0;
+        int noCloseFrom = Integer.MAX_VALUE; // no '>' at or after this index
+        int n = text.length();
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            char lower;
+            if (c < 128) {
+                lower = c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+            } else {
+                lower = Character.toLowerCase(c); // a few non-ASCII letters lower-case to ASCII (the Kelvin sign)
+            }
+            if ((lower >= 'a' && lower <= 'z') || (lower >= '0' && lower <= '9')) {
+                if (length == buffer.length) {
+                    char[] grown = new char[buffer.length * 2];
+                    System.arraycopy(buffer, 0, grown, 0, length);
+                    buffer = grown;
+                }
+                buffer[length++] = lower;
+                continue;
+            }
+            if (length > 0) {
+                sink.token(buffer, length, ++position);
+                length = 0;
+            }
+            if (html && c == '<' && i + 1 < noCloseFrom) {
+                int close = indexOf(text, '>', i + 1);
+                if (close < 0) {
+                    noCloseFrom = i + 1; // a '<' without a later '>' is just punctuation
+                } else {
+                    i = close;
+                }
+            }
+        }
+        if (length > 0) {
+            sink.token(buffer, length, ++position);
+        }
+    }
+
+    // Every token, stopwords included: token k (0-based) is at position k + 1.
+    static List<String> tokens(CharSequence text, boolean html) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(text, html, (buffer, length, position) -> tokens.add(new String(buffer, 0, length)));
+        return tokens;
+    }
+
+    private static int indexOf(CharSequence text, char c, int from) {
+        if (text instanceof String) {
+            return ((String) text).indexOf(c, from);
+        }
+        for (int i = from; i < text.length(); i++) {
+            if (text.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
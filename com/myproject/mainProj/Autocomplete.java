@@ -0,0 +1,100 @@
+package com.myproject.mainProj;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// **File:** Autocomplete.java
+// **Purpose:** Prefix completions ranked by document frequency, for type-ahead suggestions and `comput*` queries.
+//
+// A prefix's terms are one contiguous id range of the sorted TermDictionary. Ranges of up to SCAN_LIMIT terms are
+// ranked on the fly; every prefix with a larger range gets its top MAX_SUGGESTIONS precomputed, so no lookup ever
+// ranks more than SCAN_LIMIT terms. Built once per index on first use.
+class Autocomplete {
+
+    public static final int MAX_SUGGESTIONS = 10;
+    private static final int SCAN_LIMIT = 256;
+
+    private final TermDictionary dictionary;
+    private final int[] docFreqs;
+    private final Map<String, int[]> topByPrefix = new HashMap<>();
+
+    Autocomplete(InvertedIndex invertedIndex) {
+        this.dictionary = invertedIndex.dictionary();
+        this.docFreqs = new int[dictionary.size()];
+        for (int t = 0; t < docFreqs.length; t++) {
+            docFreqs[t] = invertedIndex.docFreq(t);
+        }
+        precompute("", 0, docFreqs.length);
+    }
+
+    // Walks down from the empty prefix, only into children whose ranges are still too large to scan.
+    private void precompute(String prefix, int from, int to) {
+        if (to - from <= SCAN_LIMIT) {
+            return;
+        }
+        topByPrefix.put(prefix, top(from, to, MAX_SUGGESTIONS));
+        int depth = prefix.length();
+        int i = from;
+        if (dictionary.term(i).length() == depth) {
+            i++; // the prefix itself is a term and sorts before all its extensions
+        }
+        while (i < to) {
+            String child = dictionary.term(i).substring(0, depth + 1);
+            int end = dictionary.ceilingId(child + Character.MAX_VALUE);
+            precompute(child, i, end);
+            i = end;
+        }
+    }
+
+    public int docFreq(int termId) {
+        return docFreqs[termId];
+    }
+
+    // Up to limit (capped at MAX_SUGGESTIONS) term ids starting with prefix, most frequent first.
+    public int[] suggest(String prefix, int limit) {
+        limit = Math.min(limit, MAX_SUGGESTIONS);
+        int[] cached = topByPrefix.get(prefix);
+        if (cached != null) {
+            return Arrays.copyOf(cached, Math.min(limit, cached.length));
+        }
+        int[] range = dictionary.prefixRange(prefix);
+        return top(range[0], range[1], limit);
+    }
+
+    // The terms a `prefix*` query word stands for: the limit most frequent, in id order. Unlike suggest() this
+    // may rank a large range, which is bounded by the prefix the user typed.
+    public int[] expand(String prefix, int limit) {
+        int[] range = dictionary.prefixRange(prefix);
+        int[] ids = range[1] - range[0] <= limit ? rangeIds(range[0], range[1]) : top(range[0], range[1], limit);
+        Arrays.sort(ids);
+        return ids;
+    }
+
+    private static int[] rangeIds(int from, int to) {
+        int[] ids = new int[to - from];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = from + i;
+        }
+        return ids;
+    }
+
+    // Insertion into a small sorted array: limit is tiny next to the range, so most terms are rejected by the
+    // single comparison against the current last entry. Ties go to the smaller (alphabetically first) id.
+    private int[] top(int from, int to, int limit) {
+        int[] best = new int[Math.min(limit, to - from)];
+        int size = 0;
+        for (int id = from; id < to && best.length > 0; id++) {
+            if (size == best.length && docFreqs[id] <= docFreqs[best[size - 1]]) {
+                continue;
+            }
+            int j = size < best.length ? size++ : size - 1;
+            while (j > 0 && docFreqs[best[j - 1]] < docFreqs[id]) {
+                best[j] = best[j - 1];
+                j--;
+            }
+            best[j] = id;
+        }
+        return best;
+    }
+}
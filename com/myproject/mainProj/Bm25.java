@@ -0,0 +1,52 @@
+package com.myproject.mainProj;
+
+import java.util.Arrays;
+
+// **File:** Bm25.java
+// **Purpose:** Okapi BM25 scoring over an InvertedIndex, plus per-term score upper bounds for WAND.
+class Bm25 {
+
+    public static final double K1 = 1.2;
+    public static final double B = 0.75;
+
+    private final InvertedIndex invertedIndex;
+    private final float[] upperBounds;
+
+    Bm25(InvertedIndex invertedIndex) {
+        this.invertedIndex = invertedIndex;
+        this.upperBounds = new float[invertedIndex.termCount()];
+        Arrays.fill(upperBounds, Float.NaN);
+    }
+
+    // Non-negative idf variant, so very common terms never subtract from a document's score.
+    public double idf(int docFreq) {
+        return Math.log(1 + (invertedIndex.docCount() - docFreq + 0.5) / (docFreq + 0.5));
+    }
+
+    public double score(double idf, int termFreq, int docId) {
+        double lengthNorm = 1 - B + B * invertedIndex.docLength(docId) / Math.max(invertedIndex.averageDocLength(), 1);
+        return idf * termFreq * (K1 + 1) / (termFreq + K1 * lengthNorm);
+    }
+
+    public double score(PostingsCursor cursor) {
+        return score(idf(cursor.docFreq()), cursor.freq(), cursor.docId());
+    }
+
+    // Highest score the term can contribute to any document. Computed from the postings on first use and cached;
+    // like the lazily decoded postings, a racing recomputation produces the same value.
+    public double upperBound(int termIndex) {
+        float bound = upperBounds[termIndex];
+        if (Float.isNaN(bound)) {
+            Postings postings = invertedIndex.postings(termIndex);
+            double idf = idf(postings.docFreq());
+            double max = 0;
+            for (int i = 0; i < postings.docFreq(); i++) {
+                max = Math.max(max, score(idf, postings.freq(i), postings.docId(i)));
+            }
+            // Round up so float storage never makes the bound smaller than a real score.
+            bound = Math.nextUp((float) max);
+            upperBounds[termIndex] = bound;
+        }
+        return bound;
+    }
+}
@@ -13,9 +13,21 @@ class CommandLineParser {
     public String outputFilename = "output.json"; // Default output filename
     public boolean doStemming = false;
     public String outputMode = "FILE"; // Default output mode
+    public String resultsTo = "BOTH"; // -RESULTS_TO=FILE|STDOUT|BOTH: where JSON results go (default: file and stdout)
     public String queryFile;
     public int snippetSize = 5; // Default snippet size
     public String fileDirectory = ".";
+    public boolean compileIndex = false;
+    public boolean disjunctive = false; // -MODE=OR ranks documents matching any query word
+    public int topK = 0; // Default: return every match
+    public long snippetCacheBytes = 64L << 20; // Default: 64 MB for cached documents and snippets
+    public int snippetThreads = Runtime.getRuntime().availableProcessors(); // Default: one snippet thread per core
+    public int batchThreads = Runtime.getRuntime().availableProcessors(); // Default: one batch query per core at once
+    public long queryCacheBytes = 16L << 20; // Default: 16 MB of cached query results
+    public long queryCacheTtlSeconds = 300; // Default: cached query results expire after 5 minutes
+    public boolean memoryReport = false; // -MEMORY_REPORT prints the index's heap footprint after loading
+    public boolean metrics = false; // -METRICS prints per-stage latencies and counters after the searches
+    public boolean profile = false; // -PROFILE adds each query's evaluation breakdown to its JSON result
 
     public CommandLineParser(String[] args) {
         // System.out.println("In commandline parser we have these as args: " + Arrays.toString(args));
@@ -41,6 +53,18 @@ class CommandLineParser {
                 searchType = "QUERY";
                 searchValue = parseArgumentValue(args, i, "-SEARCH=QUERY");
                 i = (searchValue != null) ? i + 1 : i;
+            } else if (arg.startsWith("-SEARCH=SUGGEST")) {
+                searchType = "SUGGEST";
+                searchValue = parseArgumentValue(args, i, "-SEARCH=SUGGEST");
+                i = (searchValue != null) ? i + 1 : i;
+            } else if (arg.equals("-COMPILE_INDEX")) {
+                compileIndex = true;
+            } else if (arg.equals("-MEMORY_REPORT")) {
+                memoryReport = true;
+            } else if (arg.equals("-METRICS")) {
+                metrics = true;
+            } else if (arg.equals("-PROFILE")) {
+                profile = true;
             } else if (arg.equals("-STEM")) {
                 doStemming = true;
             } else if (arg.startsWith("-PRINT_INDEX=WORD")) {
@@ -53,11 +77,31 @@ class CommandLineParser {
                 i = (printValue != null) ? i + 1 : i;
             } else if (arg.startsWith("-output=")) {
                 outputFilename = arg.substring("-output=".length());
+            } else if (arg.startsWith("-TOP_K=")) {
+                topK = Integer.parseInt(arg.substring("-TOP_K=".length()));
+            } else if (arg.startsWith("-MODE=")) {
+                disjunctive = arg.substring("-MODE=".length()).equalsIgnoreCase("OR");
+            } else if (arg.startsWith("-SNIPPET_CACHE_MB=")) {
+                snippetCacheBytes = Long.parseLong(arg.substring("-SNIPPET_CACHE_MB=".length())) << 20;
+            } else if (arg.startsWith("-SNIPPET_THREADS=")) {
+                snippetThreads = Integer.parseInt(arg.substring("-SNIPPET_THREADS=".length()));
+            } else if (arg.startsWith("-BATCH_THREADS=")) {
+                batchThreads = Integer.parseInt(arg.substring("-BATCH_THREADS=".length()));
+            } else if (arg.startsWith("-QUERY_CACHE_MB=")) {
+                queryCacheBytes = Long.parseLong(arg.substring("-QUERY_CACHE_MB=".length())) << 20;
+            } else if (arg.startsWith("-QUERY_CACHE_TTL=")) {
+                queryCacheTtlSeconds = Long.parseLong(arg.substring("-QUERY_CACHE_TTL=".length()));
             } else if (arg.startsWith("-SNIPPET_SIZE=")) {
                 snippetSize = Integer.parseInt(arg.substring("-SNIPPET_SIZE=".length()));
             } else if (arg.startsWith("-GUI=")) {
                 String guiOption = arg.substring("-GUI=".length()).toUpperCase();
                 outputMode = guiOption.equals("TRUE") ? "GUI" : guiOption.equals("BOTH") ? "BOTH" : "FILE";
+            } else if (arg.startsWith("-RESULTS_TO=")) {
+                resultsTo = arg.substring("-RESULTS_TO=".length()).toUpperCase();
+                if (!resultsTo.equals("FILE") && !resultsTo.equals("STDOUT") && !resultsTo.equals("BOTH")) {
+                    System.out.println("Unknown -RESULTS_TO value " + resultsTo + ", using BOTH");
+                    resultsTo = "BOTH";
+                }
             } else if (arg.startsWith("-QUERY_FILE=")) {
                 queryFile = arg.substring("-QUERY_FILE=".length());
             } else {
@@ -84,15 +128,23 @@ class CommandLineParser {
     }
 
     private void printUsageIfNeeded() {
-        if (queryFile == null && (searchType == null || searchValue == null) && (printType == null || printValue == null)) {
+        if (!isValid()) {
             System.out.println("Usage:");
-            System.out.println("  -SEARCH=WORD word OR -SEARCH=DOC docid OR -SEARCH=QUERY \"query string\" [-STEM] [-SNIPPET_SIZE=number] [-GUI=true|false|both] -output=OutputFileName");
+            System.out.println("  -SEARCH=WORD word OR -SEARCH=DOC docid OR -SEARCH=QUERY \"query string\" [-STEM] [-SNIPPET_SIZE=number] [-MODE=AND|OR] [-TOP_K=number] [-GUI=true|false|both] -output=OutputFileName");
+            System.out.println("  -SEARCH=SUGGEST prefix [-STEM] [-GUI=true|false|both] -output=OutputFileName   (completions by document frequency; queries also accept prefix* words)");
+            System.out.println("  Queries accept \"exact phrases\" and word NEAR/k word (at most k positions apart)");
             System.out.println("  -PRINT_INDEX=WORD word OR -PRINT_INDEX=DOC docid [-GUI=true|false|both] -output=OutputFileName");
-            System.out.println("  -QUERY_FILE=filename [-STEM] [-SNIPPET_SIZE=number] [-GUI=true|false|both] -output=OutputFileName");
+            System.out.println("  -QUERY_FILE=filename [-STEM] [-SNIPPET_SIZE=number] [-SNIPPET_CACHE_MB=number] [-SNIPPET_THREADS=number] [-BATCH_THREADS=number] [-QUERY_CACHE_MB=number] [-QUERY_CACHE_TTL=seconds] [-MODE=AND|OR] [-TOP_K=number] [-GUI=true|false|both] -output=OutputFileName");
+            System.out.println("  -QUERY_FILE runs -BATCH_THREADS queries at once (default: one per core) and writes results in file order");
+            System.out.println("  JSON results go to the output file and stdout; -RESULTS_TO=FILE|STDOUT|BOTH picks one or both");
+            System.out.println("  Any of the above with -MEMORY_REPORT prints the index's heap footprint after loading");
+            System.out.println("  Any -SEARCH=QUERY or -QUERY_FILE with -PROFILE adds each query's evaluation breakdown (\"profile\") to its result");
+            System.out.println("  Any search with -METRICS prints latency per search stage, postings scanned, document reads and cache hit rates");
+            System.out.println("  -COMPILE_INDEX [-STEM] [-FILE_DIR=directory]   (writes " + IndexSegment.FILE_NAME + " for fast startup)");
         }
     }
     
     public boolean isValid() {
-        return !(queryFile == null && (searchType == null || searchValue == null) && (printType == null || printValue == null));
+        return compileIndex || !(queryFile == null && (searchType == null || searchValue == null) && (printType == null || printValue == null));
     }
 }
@@ -0,0 +1,74 @@
+package com.myproject.mainProj;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// **File:** Conjunction.java
+// **Purpose:** Streams the documents that contain every term (strict AND) without building any doc-id sets.
+//
+// Cursors are ordered rarest-first; the rarest list leads and the others are galloped forward to its candidates
+// (leapfrog intersection), so the work is bounded by the shortest list rather than the longest.
+class Conjunction {
+
+    private final PostingsCursor[] cursors;
+    private final PostingsCursor[] byInput; // the same cursors, in the caller's order
+    private int docId = -1;
+
+    Conjunction(List<Postings> termPostings) {
+        byInput = new PostingsCursor[termPostings.size()];
+        for (int i = 0; i < byInput.length; i++) {
+            byInput[i] = termPostings.get(i).cursor();
+        }
+        cursors = byInput.clone();
+        Arrays.sort(cursors, Comparator.comparingInt(PostingsCursor::docFreq));
+    }
+
+    // Cursor of the i-th postings passed to the constructor, positioned on the current document.
+    public PostingsCursor cursor(int i) {
+        return byInput[i];
+    }
+
+    public int docId() {
+        return docId;
+    }
+
+    public int nextDoc() {
+        if (cursors.length == 0) {
+            return docId = PostingsCursor.NO_MORE_DOCS;
+        }
+        return docId = align(cursors[0].nextDoc());
+    }
+
+    private int align(int target) {
+        outer:
+        while (target != PostingsCursor.NO_MORE_DOCS) {
+            for (int i = 1; i < cursors.length; i++) {
+                int other = cursors[i].advance(target);
+                if (other > target) {
+                    target = cursors[0].advance(other);
+                    continue outer;
+                }
+            }
+            return target;
+        }
+        return PostingsCursor.NO_MORE_DOCS;
+    }
+
+    public double score(Bm25 bm25) {
+        double score = 0;
+        for (PostingsCursor cursor : cursors) {
+            score += bm25.score(cursor);
+        }
+        return score;
+    }
+
+    // Earliest position of any query term in the current document.
+    public int firstPosition() {
+        int earliest = Integer.MAX_VALUE;
+        for (PostingsCursor cursor : cursors) {
+            earliest = Math.min(earliest, cursor.firstPosition());
+        }
+        return earliest;
+    }
+}
@@ -6,10 +6,8 @@ import java.io.BufferedReader;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.*;
-import java.util.regex.*;
-
-import com.myproject.utils.StatClasses.InvertedIndexEntry;
 
 
 class DataLoader {
@@ -42,17 +40,6 @@ class DataLoader {
         }
         return stemmingDictionary;
     }
-    
-    public static void saveStemmingDictionary(Map<String, String> stemmingDictionary, String fileName) {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(fileName))) {
-            for (Map.Entry<String, String> entry : stemmingDictionary.entrySet()) {
-                bw.write(entry.getKey() + "," + entry.getValue());
-                bw.newLine();
-            }
-        } catch (IOException e) {
-            System.err.println("Error writing stemming dictionary: " + e.getMessage());
-        }
-    }
 
     public static Map<Integer, String> loadDocumentIdMap(String fileName) {
         Map<Integer, String> documentIdToFilename = new HashMap<>();
@@ -74,50 +61,167 @@ class DataLoader {
         return documentIdToFilename;
     }
 
-    public static void loadInvertedIndex(String filename, boolean doStemming,
-            HashMap<String, HashMap<Integer, List<Integer>>> invertedIndex,
-            List<InvertedIndexEntry> invertedIndexEntries, Map<String, Set<Integer>> variantToDocIds,
-            Map<String, String> stemmingDictionary) {
+    public static InvertedIndex loadInvertedIndex(String filename, boolean doStemming, StemCache stems) {
+        InvertedIndex.Builder builder = new InvertedIndex.Builder();
         try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
             reader.readLine(); // skip first line that is header
             String line;
+            String previousWord = null;
+            String stem = null;
             while ((line = reader.readLine()) != null) {
                 String[] parts = line.split(",", 3);
                 String word = parts[0];
                 int docId = Integer.parseInt(parts[1]);
                 List<Integer> positions = parsePositions(parts[2]);
 
-                // If stemming is enabled, stem the word
-                String stem = (doStemming) ? (stemmingDictionary.containsKey(word) ? stemmingDictionary.get(word) : PorterStemmer.stem(word)) : word;
-
-                // Add to invertedIndex
-                invertedIndex.computeIfAbsent(stem, k -> new HashMap<>())
-                        .computeIfAbsent(docId, k -> new ArrayList<>())
-                        .addAll(positions);
+                // If stemming is enabled, stem the word (lines are grouped by word, so only once per word)
+                if (!word.equals(previousWord)) {
+                    stem = (doStemming) ? stems.stem(word) : word;
+                    previousWord = word;
+                }
 
-                // Store the entry for printing purposes
-                invertedIndexEntries.add(new InvertedIndexEntry(stem, docId, positions));
+                // The index is the only copy; printing and per-word/per-doc lookups read views of it
+                builder.add(stem, docId, positions);
+            }
+        } catch (IOException e) {
+            System.out.println("Error loading inverted index: " + e.getMessage());
+        }
+        return builder.build();
+    }
 
-                // Build the variantToDocIds mapping
-                Set<String> variants = new HashSet<>();
-                variants.add(stem);
+    // Adds the incremental segments and deletions under baseDir (see SegmentSet) to the base index, or returns
+    // the base unchanged when there are none. Segments are stored unstemmed and stemmed here when needed.
+    public static InvertedIndex withSegments(String baseDir, InvertedIndex base, boolean doStemming,
+            StemCache stems) {
+        if (!SegmentSet.exists(baseDir)) {
+            return base;
+        }
+        try {
+            SegmentSet.Snapshot snapshot = SegmentSet.open(baseDir);
+            if (snapshot.segments.isEmpty() && snapshot.deleted.isEmpty()) {
+                return base;
+            }
+            List<InvertedIndex> parts = new ArrayList<>();
+            parts.add(base);
+            for (IndexSegment segment : snapshot.segments) {
+                InvertedIndex part = InvertedIndex.open(segment);
+                parts.add(doStemming ? stemmed(part, stems) : part);
+            }
+            System.out.println("Loaded " + snapshot.segments.size() + " incremental segment(s) and "
+                    + snapshot.deleted.cardinality() + " deletion(s)");
+            return InvertedIndex.combine(parts, snapshot.deleted);
+        } catch (IOException e) {
+            System.out.println("Error loading incremental segments: " + e.getMessage());
+            return base;
+        }
+    }
 
-                for (String variant : variants) {
-                    Set<Integer> docIds = variantToDocIds.getOrDefault(variant, new HashSet<>());
-                    docIds.add(docId);
-                    variantToDocIds.put(variant, docIds);
+    private static InvertedIndex stemmed(InvertedIndex index, StemCache stems) {
+        InvertedIndex.Builder builder = new InvertedIndex.Builder();
+        for (int t = 0; t < index.termCount(); t++) {
+            String stem = stems.stem(index.term(t));
+            Postings postings = index.postings(t);
+            for (int i = 0; i < postings.docFreq(); i++) {
+                List<Integer> positions = new ArrayList<>();
+                for (int position : postings.positions(i)) {
+                    positions.add(position);
                 }
+                builder.add(stem, postings.docId(i), positions);
+            }
+        }
+        return builder.build();
+    }
+
+    // Opens a compiled index segment (see IndexSegment); postings stay in the mapped file until first used.
+    // Returns null when no usable segment exists so the caller can fall back to the text index, including when the
+    // inverted_index.txt next to it has changed since it was compiled.
+    public static InvertedIndex loadInvertedIndexSegment(String filename, boolean doStemming) {
+        if (!new File(filename).isFile()) {
+            return null;
+        }
+        try {
+            IndexSegment segment = IndexSegment.open(filename);
+            if (segment.isStemmed() != doStemming) {
+                System.out.println("Ignoring " + filename + ": it was compiled with stemming "
+                        + (segment.isStemmed() ? "on" : "off"));
+                return null;
             }
+            // Without a recorded source, a text index written after the segment is taken as newer.
+            File source = new File(new File(filename).getAbsoluteFile().getParent(), "inverted_index.txt");
+            boolean fresh = !source.isFile() || (segment.hasSource() ? segment.matchesSource(source)
+                    : source.lastModified() <= new File(filename).lastModified());
+            if (!fresh) {
+                System.out.println("Ignoring " + filename + ": " + source.getName()
+                        + " has changed since it was compiled (run -COMPILE_INDEX again)");
+                return null;
+            }
+            InvertedIndex invertedIndex = InvertedIndex.open(segment);
+            loadForwardIndex(Paths.get(new File(filename).getAbsoluteFile().getParent(), ForwardIndex.FILE_NAME).toString(),
+                    invertedIndex);
+            return invertedIndex;
         } catch (IOException e) {
-            System.out.println("Error loading inverted index: " + e.getMessage());
+            System.out.println("Error loading index segment: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Attaches forward_index.bin when it matches the index; otherwise the forward index is built on first use.
+    private static void loadForwardIndex(String filename, InvertedIndex invertedIndex) {
+        if (!new File(filename).isFile()) {
+            return;
+        }
+        try {
+            ForwardIndex forwardIndex = ForwardIndex.open(filename);
+            if (forwardIndex.indexTermCount() != invertedIndex.termCount()) {
+                System.out.println("Ignoring " + filename + ": it does not match the index segment");
+                return;
+            }
+            invertedIndex.setForwardIndex(forwardIndex);
+        } catch (IOException e) {
+            System.out.println("Error loading forward index: " + e.getMessage());
+        }
+    }
+
+    // Returns null when documents.bin is missing or unreadable; snippets then fall back to the HTML files.
+    public static DocumentStore loadDocumentStore(String filename) {
+        if (!new File(filename).isFile()) {
+            return null;
+        }
+        try {
+            return DocumentStore.open(filename);
+        } catch (IOException e) {
+            System.out.println("Error loading document store: " + e.getMessage());
+            return null;
         }
     }
 
+    // Writes the segment and, next to it, the matching forward index.
+    public static void compileInvertedIndex(String textFilename, String segmentFilename, boolean doStemming,
+            StemCache stems) throws IOException {
+        File source = new File(textFilename);
+        long sourceLength = source.length();
+        long sourceModified = source.lastModified();
+        InvertedIndex invertedIndex = loadInvertedIndex(textFilename, doStemming, stems);
+        IndexSegment.write(segmentFilename, invertedIndex, doStemming, sourceLength, sourceModified);
+        ForwardIndex.write(Paths.get(new File(segmentFilename).getAbsoluteFile().getParent(), ForwardIndex.FILE_NAME)
+                .toString(), invertedIndex);
+    }
+
+    // Pulls every run of digits out of the positions column, e.g. "[3, 17, 42]".
     private static List<Integer> parsePositions(String positionsStr) {
         List<Integer> positions = new ArrayList<>();
-        Matcher matcher = Pattern.compile("\\d+").matcher(positionsStr);
-        while (matcher.find()) {
-            positions.add(Integer.parseInt(matcher.group()));
+        int value = -1;
+        for (int i = 0; i < positionsStr.length(); i++) {
+            char c = positionsStr.charAt(i);
+            if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+            } else if (value >= 0) {
+                positions.add(value);
+                value = -1;
+            }
+        }
+        if (value >= 0) {
+            positions.add(value);
         }
         return positions;
     }
@@ -0,0 +1,87 @@
+package com.myproject.mainProj;
+
+// **File:** Disjunction.java
+// **Purpose:** Ranked OR retrieval with WAND: documents whose summed BM25 upper bounds cannot beat the current
+// top-k threshold are skipped by galloping past them instead of being scored.
+class Disjunction {
+
+    private final Bm25 bm25;
+    private final PostingsCursor[] cursors;
+    private final double[] idfs;
+    private final double[] upperBounds;
+
+    Disjunction(InvertedIndex invertedIndex, int[] termIds) {
+        this.bm25 = invertedIndex.bm25();
+        int n = termIds.length;
+        cursors = new PostingsCursor[n];
+        idfs = new double[n];
+        upperBounds = new double[n];
+        for (int i = 0; i < n; i++) {
+            Postings postings = invertedIndex.postings(termIds[i]);
+            cursors[i] = postings.cursor();
+            idfs[i] = bm25.idf(postings.docFreq());
+            upperBounds[i] = bm25.upperBound(termIds[i]);
+        }
+    }
+
+    public void collect(TopKCollector collector) {
+        for (PostingsCursor cursor : cursors) {
+            cursor.nextDoc();
+        }
+        while (true) {
+            sortByDocId();
+
+            // Pivot: first cursor at which the running sum of upper bounds can beat the threshold.
+            double threshold = collector.threshold();
+            double bound = 0;
+            int pivot = -1;
+            for (int i = 0; i < cursors.length && cursors[i].docId() != PostingsCursor.NO_MORE_DOCS; i++) {
+                bound += upperBounds[i];
+                if (bound > threshold) {
+                    pivot = i;
+                    break;
+                }
+            }
+            if (pivot < 0) {
+                return;
+            }
+
+            int pivotDoc = cursors[pivot].docId();
+            if (cursors[0].docId() == pivotDoc) {
+                double score = 0;
+                int firstPosition = Integer.MAX_VALUE;
+                for (int i = 0; i < cursors.length && cursors[i].docId() == pivotDoc; i++) {
+                    score += bm25.score(idfs[i], cursors[i].freq(), pivotDoc);
+                    firstPosition = Math.min(firstPosition, cursors[i].firstPosition());
+                }
+                collector.collect(pivotDoc, score, firstPosition);
+                for (int i = 0; i < cursors.length && cursors[i].docId() == pivotDoc; i++) {
+                    cursors[i].nextDoc();
+                }
+            } else {
+                for (int i = 0; i < pivot; i++) {
+                    cursors[i].advance(pivotDoc);
+                }
+            }
+        }
+    }
+
+    // Insertion sort: the arrays are tiny and nearly sorted between iterations.
+    private void sortByDocId() {
+        for (int i = 1; i < cursors.length; i++) {
+            PostingsCursor cursor = cursors[i];
+            double idf = idfs[i];
+            double upperBound = upperBounds[i];
+            int j = i - 1;
+            while (j >= 0 && cursors[j].docId() > cursor.docId()) {
+                cursors[j + 1] = cursors[j];
+                idfs[j + 1] = idfs[j];
+                upperBounds[j + 1] = upperBounds[j];
+                j--;
+            }
+            cursors[j + 1] = cursor;
+            idfs[j + 1] = idf;
+            upperBounds[j + 1] = upperBound;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.myproject.mainProj;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+// **File:** DocumentStore.java
+// **Purpose:** Memory-mapped store of every document's normalised token stream, written at index-compile time so
+// snippets are cut from pre-tokenised text instead of re-reading and regex-stripping the HTML per hit.
+//
+// Layout (big-endian):
+//   header    : int magic, int version, int docTableSize
+//   doc table : docTableSize x (int offset, int tokenCount); offset 0 means the doc id is not stored
+//   per doc   : int[tokenCount + 1] token start offsets (relative to the text), then the tokens as UTF-8
+//               joined by single spaces; token i ends one byte before offset i + 1
+class DocumentStore {
+
+    public static final String FILE_NAME = "documents.bin";
+
+    private static final int MAGIC = 0x53454444; // "SEDD"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int DOC_ENTRY_SIZE = 8;
+
+    private final ByteBuffer buffer;
+    private final int docTableSize;
+
+    private DocumentStore(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a document store file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported document store version: " + buffer.getInt(4));
+        }
+        this.docTableSize = buffer.getInt(8);
+    }
+
+    public static DocumentStore open(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Document store larger than 2GB is not supported: " + filename);
+            }
+            return new DocumentStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public boolean contains(int docId) {
+        return docId >= 0 && docId < docTableSize && docOffset(docId) != 0;
+    }
+
+    public int tokenCount(int docId) {
+        return buffer.getInt(HEADER_SIZE + docId * DOC_ENTRY_SIZE + 4);
+    }
+
+    // Tokens from..to (inclusive, 0-based) as one space-separated string: two offset reads and a single copy.
+    public String text(int docId, int from, int to) {
+        if (from > to) {
+            return "";
+        }
+        int offsets = docOffset(docId);
+        int textStart = offsets + (tokenCount(docId) + 1) * 4;
+        int start = buffer.getInt(offsets + from * 4);
+        int end = buffer.getInt(offsets + (to + 1) * 4) - 1;
+        byte[] bytes = new byte[end - start];
+        buffer.get(textStart + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int docOffset(int docId) {
+        return buffer.getInt(HEADER_SIZE + docId * DOC_ENTRY_SIZE);
+    }
+
+    // documentIdToFilename must map to readable paths; unreadable documents are reported and left out.
+    public static void write(String filename, Map<Integer, String> documentIdToFilename) throws IOException {
+        int docTableSize = 0;
+        for (int docId : documentIdToFilename.keySet()) {
+            docTableSize = Math.max(docTableSize, docId + 1);
+        }
+        int dataStart = HEADER_SIZE + docTableSize * DOC_ENTRY_SIZE;
+        ByteBuffer table = ByteBuffer.allocate(dataStart);
+        table.putInt(MAGIC).putInt(VERSION).putInt(docTableSize);
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(dataStart);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            for (int docId = 0; docId < docTableSize; docId++) {
+                List<String> tokens = null;
+                String content = documentIdToFilename.containsKey(docId)
+                        ? SnippetGenerator.readDocumentContent(documentIdToFilename, docId) : null;
+                if (content != null) {
+                    tokens = Analyzer.tokens(content, true);
+                }
+                if (tokens == null) {
+                    table.putInt(0).putInt(0);
+                    continue;
+                }
+
+                long offset = (long) dataStart + out.size();
+                if (offset > Integer.MAX_VALUE) {
+                    throw new IOException("Document store larger than 2GB is not supported");
+                }
+                table.putInt((int) offset).putInt(tokens.size());
+
+                byte[][] tokenBytes = new byte[tokens.size()][];
+                int start = 0;
+                for (int i = 0; i < tokens.size(); i++) {
+                    tokenBytes[i] = tokens.get(i).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(start);
+                    start += tokenBytes[i].length + 1;
+                }
+                out.writeInt(start);
+                for (int i = 0; i < tokenBytes.length; i++) {
+                    if (i > 0) {
+                        out.writeByte(' ');
+                    }
+                    out.write(tokenBytes[i]);
+                }
+            }
+            out.flush();
+
+            table.flip();
+            channel.position(0);
+            while (table.hasRemaining()) {
+                channel.write(table);
+            }
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.myproject.mainProj;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// **File:** ForwardIndex.java
+// **Purpose:** docId -> (term id, frequency, positions) for every term of a document, so per-document lookups cost
+// as much as the document itself instead of a scan over the whole vocabulary. Term ids are InvertedIndex slots.
+//
+// Layout (big-endian), identical on disk and on the heap:
+//   header    : int magic, int version, int termCount, int docTableSize
+//   doc table : docTableSize x int offset; 0 means the doc id has no terms
+//   per doc   : int n, int[n] term ids (ascending), int[n] freqs, int[n + 1] position block offsets (relative to
+//               the first block), then the position blocks in Postings encoding (delta + variable-byte)
+class ForwardIndex {
+
+    public static final String FILE_NAME = "forward_index.bin";
+
+    private static final int MAGIC = 0x53454649; // "SEFI"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    private final ByteBuffer buffer;
+    private final int docTableSize;
+
+    private ForwardIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a forward index file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported forward index version: " + buffer.getInt(4));
+        }
+        this.docTableSize = buffer.getInt(12);
+    }
+
+    public static ForwardIndex open(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Forward index larger than 2GB is not supported: " + filename);
+            }
+            return new ForwardIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Inverts the postings in two passes: size every document's entry, then copy each position block into place.
+    public static ForwardIndex build(InvertedIndex invertedIndex) {
+        int docTableSize = invertedIndex.docLengths().length;
+        int[] termCounts = new int[docTableSize];
+        long[] blockBytes = new long[docTableSize];
+        for (int t = 0; t < invertedIndex.termCount(); t++) {
+            Postings postings = invertedIndex.postings(t);
+            for (int i = 0; i < postings.docFreq(); i++) {
+                int docId = postings.docId(i);
+                termCounts[docId]++;
+                blockBytes[docId] += postings.positionBlockLength(i);
+            }
+        }
+
+        int[] docOffsets = new int[docTableSize];
+        long size = HEADER_SIZE + 4L * docTableSize;
+        for (int docId = 0; docId < docTableSize; docId++) {
+            if (termCounts[docId] > 0) {
+                docOffsets[docId] = (int) size;
+                size += 4 + 12L * termCounts[docId] + 4 + blockBytes[docId];
+                if (size > Integer.MAX_VALUE) {
+                    throw new IllegalStateException("Forward index larger than 2GB is not supported");
+                }
+            }
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) size);
+        buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, invertedIndex.termCount()).putInt(12, docTableSize);
+        for (int docId = 0; docId < docTableSize; docId++) {
+            buffer.putInt(HEADER_SIZE + docId * 4, docOffsets[docId]);
+            if (termCounts[docId] > 0) {
+                buffer.putInt(docOffsets[docId], termCounts[docId]);
+            }
+        }
+
+        // Terms are visited in id order, so each document's term ids come out ascending.
+        int[] filled = new int[docTableSize];
+        int[] blockEnd = new int[docTableSize];
+        for (int t = 0; t < invertedIndex.termCount(); t++) {
+            Postings postings = invertedIndex.postings(t);
+            for (int i = 0; i < postings.docFreq(); i++) {
+                int docId = postings.docId(i);
+                int n = termCounts[docId];
+                int k = filled[docId]++;
+                int entry = docOffsets[docId] + 4;
+                buffer.putInt(entry + k * 4, t);
+                buffer.putInt(entry + (n + k) * 4, postings.freq(i));
+                buffer.putInt(entry + (2 * n + k) * 4, blockEnd[docId]);
+                postings.copyPositionBlock(i, buffer, entry + (3 * n + 1) * 4 + blockEnd[docId]);
+                blockEnd[docId] += postings.positionBlockLength(i);
+                if (k == n - 1) {
+                    buffer.putInt(entry + 3 * n * 4, blockEnd[docId]);
+                }
+            }
+        }
+        try {
+            return new ForwardIndex(buffer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // header written above
+        }
+    }
+
+    public static void write(String filename, InvertedIndex invertedIndex) throws IOException {
+        ByteBuffer buffer = build(invertedIndex).buffer.duplicate();
+        buffer.clear();
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    public long sizeBytes() {
+        return buffer.capacity();
+    }
+
+    public boolean isMapped() {
+        return buffer.isDirect();
+    }
+
+    // Size of the dictionary this was built against; a mismatch means it is stale for the loaded index.
+    public int indexTermCount() {
+        return buffer.getInt(8);
+    }
+
+    // Number of distinct terms in the document (0 for unknown doc ids).
+    public int termCount(int docId) {
+        int offset = docOffset(docId);
+        return offset == 0 ? 0 : buffer.getInt(offset);
+    }
+
+    public int termId(int docId, int k) {
+        return buffer.getInt(docOffset(docId) + 4 + k * 4);
+    }
+
+    public int freq(int docId, int k) {
+        int offset = docOffset(docId);
+        return buffer.getInt(offset + 4 + (buffer.getInt(offset) + k) * 4);
+    }
+
+    public int[] positions(int docId, int k) {
+        int offset = docOffset(docId);
+        int n = buffer.getInt(offset);
+        int entry = offset + 4;
+        int blocksStart = entry + (3 * n + 1) * 4;
+        int position = blocksStart + buffer.getInt(entry + (2 * n + k) * 4);
+        int[] positions = new int[buffer.getInt(entry + (n + k) * 4)];
+        int[] next = new int[1];
+        int value = 0;
+        for (int p = 0; p < positions.length; p++) {
+            value += VByte.read(buffer, position, next);
+            position = next[0];
+            positions[p] = value;
+        }
+        return positions;
+    }
+
+    private int docOffset(int docId) {
+        return docId >= 0 && docId < docTableSize ? buffer.getInt(HEADER_SIZE + docId * 4) : 0;
+    }
+}
@@ -1,50 +1,51 @@
 package com.myproject.mainProj;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
-import com.myproject.utils.StatClasses.InvertedIndexEntry;
 import com.myproject.utils.StatClasses.QueryResult;
 
 // **File:** IndexPrinter.java
-// **Purpose:** Contains methods for printing inverted index entries by word or document.
+// **Purpose:** Contains methods for printing inverted index entries by word (postings) or document (forward index).
 class IndexPrinter {
 
-    public static QueryResult getIndexByWord(String word, List<InvertedIndexEntry> invertedIndexEntries)
+    public static QueryResult getIndexByWord(String word, InvertedIndex invertedIndex)
             throws IOException {
         QueryResult result = new QueryResult();
         result.queryString = "Index entries for word: " + word;
-        boolean found = false;
-        for (InvertedIndexEntry entry : invertedIndexEntries) {
-            if (entry.word.equals(word)) {
-                result.retrievedDocIds.add(entry.docId);
-                result.docIdToSnippet.put(entry.docId, "Positions: " + entry.positions.toString());
-                found = true;
-            }
-        }
-        if (!found) {
+        Postings postings = invertedIndex.postings(word);
+        if (postings == null) {
             System.out.println("Word '" + word + "' not found in the inverted index.");
+            return result;
+        }
+        for (int i = 0; i < postings.docFreq(); i++) {
+            result.retrievedDocIds.add(postings.docId(i));
+            result.docIdToSnippet.put(postings.docId(i), "Positions: " + Arrays.toString(postings.positions(i)));
         }
         return result;
     }
 
-    public static QueryResult getIndexByDocument(int docId, List<InvertedIndexEntry> invertedIndexEntries)
+    public static QueryResult getIndexByDocument(int docId, InvertedIndex invertedIndex)
             throws IOException {
         QueryResult result = new QueryResult();
         result.queryString = "Index entries for Document ID: " + docId;
-        boolean found = false;
         Map<String, List<Integer>> wordPositionsMap = new LinkedHashMap<>();
 
-        for (InvertedIndexEntry entry : invertedIndexEntries) {
-            if (entry.docId == docId) {
-                wordPositionsMap.put(entry.word, entry.positions);
-                found = true;
+        ForwardIndex forwardIndex = invertedIndex.forwardIndex();
+        int termCount = forwardIndex.termCount(docId);
+        for (int k = 0; k < termCount; k++) {
+            List<Integer> positions = new ArrayList<>();
+            for (int position : forwardIndex.positions(docId, k)) {
+                positions.add(position);
             }
+            wordPositionsMap.put(invertedIndex.term(forwardIndex.termId(docId, k)), positions);
         }
 
-        if (!found) {
+        if (termCount == 0) {
             System.out.println("Document ID " + docId + " not found in the inverted index.");
         } else {
             result.retrievedDocIds.add(docId);
@@ -0,0 +1,207 @@
+package com.myproject.mainProj;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// **File:** IndexSegment.java
+// **Purpose:** Binary, memory-mapped form of inverted_index.txt (term dictionary + doc-id postings + position blocks).
+//
+// Layout (big-endian):
+//   header      : int magic, int version, int flags, int termCount, int docTableSize,
+//                 long sourceLength, long sourceModified (the inverted_index.txt it was compiled from; -1 if none)
+//   doc lengths : int[docTableSize], token count per doc id (0 for unused ids)
+//   term table  : termCount x (int termOffset, int termLength, int docFreq, int postingsOffset), sorted by term
+//   term bytes  : UTF-8 term strings referenced by the table
+//   postings    : per term, int[docFreq] docIds (ascending), int[docFreq + 1] position block offsets,
+//                 then the position blocks (per doc, delta + variable-byte encoded positions)
+class IndexSegment implements InvertedIndex.PostingsSource {
+
+    public static final String FILE_NAME = "inverted_index.bin";
+
+    private static final int MAGIC = 0x53454958; // "SEIX"
+    private static final int VERSION = 3;
+    private static final int VERSION_WITHOUT_SOURCE = 2; // still read: a 20-byte header and no source
+    private static final int FLAG_STEMMED = 1;
+    private static final int HEADER_SIZE = 36;
+    private static final int TERM_ENTRY_SIZE = 16;
+
+    private final ByteBuffer buffer;
+    private final int flags;
+    private final int termCount;
+    private final int docTableSize;
+    private final int headerSize;
+    private final int termTableStart;
+    private final long sourceLength;
+    private final long sourceModified;
+
+    private IndexSegment(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an index segment file");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION && version != VERSION_WITHOUT_SOURCE) {
+            throw new IOException("Unsupported index segment version: " + version);
+        }
+        this.flags = buffer.getInt(8);
+        this.termCount = buffer.getInt(12);
+        this.docTableSize = buffer.getInt(16);
+        this.headerSize = version == VERSION ? HEADER_SIZE : 20;
+        this.termTableStart = headerSize + docTableSize * 4;
+        this.sourceLength = version == VERSION ? buffer.getLong(20) : -1;
+        this.sourceModified = version == VERSION ? buffer.getLong(28) : -1;
+    }
+
+    public static IndexSegment open(String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Index segment larger than 2GB is not supported: " + filename);
+            }
+            // The mapping stays valid after the channel is closed.
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new IndexSegment(mapped);
+        }
+    }
+
+    public long sizeBytes() {
+        return buffer.capacity();
+    }
+
+    public boolean isStemmed() {
+        return (flags & FLAG_STEMMED) != 0;
+    }
+
+    public int termCount() {
+        return termCount;
+    }
+
+    // Whether the segment recorded the text index it was compiled from (segments of the incremental SegmentSet,
+    // and those of the previous format, did not).
+    public boolean hasSource() {
+        return sourceLength >= 0;
+    }
+
+    // False when the text index the segment was compiled from has changed since: its length or modification time
+    // differ from the ones recorded.
+    public boolean matchesSource(File source) {
+        return source.length() == sourceLength && source.lastModified() == sourceModified;
+    }
+
+    public int[] docLengths() {
+        int[] docLengths = new int[docTableSize];
+        for (int docId = 0; docId < docTableSize; docId++) {
+            docLengths[docId] = buffer.getInt(headerSize + docId * 4);
+        }
+        return docLengths;
+    }
+
+    public String term(int termIndex) {
+        int entry = termTableStart + termIndex * TERM_ENTRY_SIZE;
+        byte[] bytes = new byte[buffer.getInt(entry + 4)];
+        buffer.get(buffer.getInt(entry), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int docFreq(int termIndex) {
+        return buffer.getInt(termTableStart + termIndex * TERM_ENTRY_SIZE + 8);
+    }
+
+    // Binary search over the sorted term table; returns -1 if the term is absent.
+    public int findTerm(String term) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = term(mid).compareTo(term);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    // Doc ids are copied onto the heap; the position data stays in the mapped file.
+    @Override
+    public Postings postings(int termIndex) {
+        int base = postingsOffset(termIndex);
+        int[] docIds = new int[docFreq(termIndex)];
+        for (int i = 0; i < docIds.length; i++) {
+            docIds[i] = buffer.getInt(base + i * 4);
+        }
+        return new Postings(docIds, buffer, base + docIds.length * 4);
+    }
+
+    private int postingsOffset(int termIndex) {
+        return buffer.getInt(termTableStart + termIndex * TERM_ENTRY_SIZE + 12);
+    }
+
+    public static void write(String filename, InvertedIndex invertedIndex, boolean stemmed) throws IOException {
+        write(filename, invertedIndex, stemmed, -1, -1);
+    }
+
+    // sourceLength and sourceModified describe the text index invertedIndex was parsed from, read before parsing
+    // it, so a text index rewritten during the compile makes the segment stale rather than wrongly fresh.
+    public static void write(String filename, InvertedIndex invertedIndex, boolean stemmed, long sourceLength,
+            long sourceModified) throws IOException {
+        int termCount = invertedIndex.termCount();
+        byte[][] termBytes = new byte[termCount][];
+        for (int t = 0; t < termCount; t++) {
+            termBytes[t] = invertedIndex.term(t).getBytes(StandardCharsets.UTF_8);
+        }
+
+        int[] docLengths = invertedIndex.docLengths();
+        int termBytesStart = HEADER_SIZE + docLengths.length * 4 + termCount * TERM_ENTRY_SIZE;
+        ByteBuffer table = ByteBuffer.allocate(termBytesStart);
+        table.putInt(MAGIC).putInt(VERSION).putInt(stemmed ? FLAG_STEMMED : 0).putInt(termCount).putInt(docLengths.length);
+        table.putLong(sourceLength).putLong(sourceModified);
+        for (int docLength : docLengths) {
+            table.putInt(docLength);
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.position(termBytesStart);
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            int termOffset = termBytesStart;
+            for (int t = 0; t < termCount; t++) {
+                out.write(termBytes[t]);
+            }
+
+            for (int t = 0; t < termCount; t++) {
+                Postings postings = invertedIndex.postings(t);
+                long postingsOffset = (long) termBytesStart + out.size();
+                if (postingsOffset > Integer.MAX_VALUE) {
+                    throw new IOException("Index segment larger than 2GB is not supported");
+                }
+                table.putInt(termOffset).putInt(termBytes[t].length).putInt(postings.docFreq()).putInt((int) postingsOffset);
+                termOffset += termBytes[t].length;
+
+                for (int i = 0; i < postings.docFreq(); i++) {
+                    out.writeInt(postings.docId(i));
+                }
+                postings.writePositionData(out);
+            }
+            out.flush();
+
+            table.flip();
+            channel.position(0);
+            while (table.hasRemaining()) {
+                channel.write(table);
+            }
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package com.myproject.mainProj;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// **File:** Indexer.java
+// **Purpose:** Builds inverted_index.txt, document_id_map.txt and generated_stoplist.txt from a directory of
+// HTML files, in the formats DataLoader reads.
+//
+// Documents get ids 1..N in sorted file-name order. Worker threads claim documents from a shared counter and
+// tokenize them with the Analyzer (so positions line up with snippets) into a private in-memory
+// segment; each thread sees its documents in increasing id order, so every segment's postings are already
+// sorted. The segments are then k-way merged term by term straight into the text file.
+//
+// -ADD, -DELETE and -MERGE maintain an existing index incrementally instead (see SegmentSet): added documents
+// become one small new segment with fresh doc ids, deletions are tombstones, and merges follow TieredMergePolicy.
+// Merges only ever combine incremental segments. Tombstones of documents in the base index stay in place, and
+// their postings are filtered at search time until the next full rebuild.
+public class Indexer {
+
+    // Function words that are never indexed, on top of single characters and machine-generated tokens.
+    static final String[] ENGLISH_STOPWORDS = { "a", "able", "about", "across", "after", "all", "almost",
+            "also", "am", "among", "an", "and", "any", "are", "as", "at", "be", "because", "been", "but", "by", "can",
+            "cannot", "could", "dear", "did", "do", "does", "either", "else", "ever", "every", "for", "from", "get",
+            "got", "had", "has", "have", "he", "her", "hers", "him", "his", "how", "however", "i", "if", "in", "into",
+            "is", "it", "its", "just", "least", "let", "like", "likely", "may", "me", "might", "most", "must", "my",
+            "neither", "no", "nor", "not", "of", "off", "often", "on", "only", "or", "other", "our", "own", "rather",
+            "said", "say", "says", "she", "should", "since", "so", "some", "than", "that", "the", "their", "them",
+            "then", "there", "these", "they", "this", "tis", "to", "too", "twas", "us", "wants", "was", "we", "were",
+            "what", "when", "where", "which", "while", "who", "whom", "why", "will", "with", "would", "yet", "you",
+            "your" };
+    // Tokens at least this long that contain a digit are ids, hashes and colour codes rather than words.
+    private static final int JUNK_TOKEN_LENGTH = 8;
+
+    public static void main(String[] args) {
+        String inputDir = ".";
+        String outputDir = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double maxDocFraction = 1.0; // terms in more than this fraction of the documents go to the stoplist
+        List<Path> additions = new ArrayList<>();
+        List<String> deletions = new ArrayList<>();
+        boolean merge = false;
+
+        for (String arg : args) {
+            if (arg.startsWith("-ADD=")) {
+                additions.add(Paths.get(arg.substring("-ADD=".length())));
+            } else if (arg.startsWith("-DELETE=")) {
+                deletions.add(arg.substring("-DELETE=".length()));
+            } else if (arg.equals("-MERGE")) {
+                merge = true;
+            } else if (arg.startsWith("-INPUT_DIR=")) {
+                inputDir = arg.substring("-INPUT_DIR=".length());
+            } else if (arg.startsWith("-OUTPUT_DIR=")) {
+                outputDir = arg.substring("-OUTPUT_DIR=".length());
+            } else if (arg.startsWith("-THREADS=")) {
+                threads = Math.max(1, Integer.parseInt(arg.substring("-THREADS=".length())));
+            } else if (arg.startsWith("-MAX_DF=")) {
+                maxDocFraction = Double.parseDouble(arg.substring("-MAX_DF=".length()));
+            } else {
+                System.err.println("Unknown argument: " + arg);
+                System.err.println("Usage: java Indexer [-INPUT_DIR=directory] [-OUTPUT_DIR=directory] [-THREADS=number] [-MAX_DF=fraction]");
+                System.err.println("       java Indexer [-ADD=file|directory]... [-DELETE=documentName]... [-MERGE] [-OUTPUT_DIR=index directory] [-THREADS=number]");
+                System.err.println("       (merges combine incremental segments only; deletions from the base index are compacted by a full rebuild)");
+                return;
+            }
+        }
+        if (outputDir == null) {
+            outputDir = inputDir;
+        }
+
+        try {
+            if (additions.isEmpty() && deletions.isEmpty() && !merge) {
+                index(inputDir, outputDir, threads, maxDocFraction);
+                return;
+            }
+            if (!deletions.isEmpty()) {
+                delete(outputDir, deletions);
+            }
+            if (!additions.isEmpty()) {
+                add(outputDir, additions, threads);
+            }
+            // Adding is what creates small segments, so it always gives the merge policy a chance too. Merges run
+            // here, before exiting, until none is due; the base index is never part of one.
+            String merged;
+            while ((merged = SegmentSet.mergeOnce(outputDir)) != null) {
+                System.out.println("Segments " + merged);
+            }
+        } catch (IOException e) {
+            System.err.println("Indexing failed: " + e.getMessage());
+        }
+    }
+
+    public static void index(String inputDir, String outputDir, int threads, double maxDocFraction)
+            throws IOException {
+        File[] files = new File(inputDir).listFiles((dir, name) -> {
+            String lower = name.toLowerCase(Locale.ROOT);
+            return lower.endsWith(".html") || lower.endsWith(".htm");
+        });
+        if (files == null) {
+            throw new IOException("Not a directory: " + inputDir);
+        }
+        String[] names = new String[files.length];
+        for (int i = 0; i < files.length; i++) {
+            names[i] = files[i].getName();
+        }
+        Arrays.sort(names);
+        Path[] paths = new Path[names.length];
+        for (int i = 0; i < names.length; i++) {
+            paths[i] = Paths.get(inputDir, names[i]);
+        }
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+        SegmentSet.clear(outputDir); // ids start over, so earlier incremental segments no longer apply
+        // ...and so do the compiled files, which searchers would otherwise keep preferring; -COMPILE_INDEX
+        // writes them again for the new index.
+        for (String compiled : new String[] { IndexSegment.FILE_NAME, ForwardIndex.FILE_NAME,
+                DocumentStore.FILE_NAME }) {
+            Files.deleteIfExists(Paths.get(outputDir, compiled));
+        }
+
+        long start = System.nanoTime();
+        List<Segment> segments = tokenizeAll(paths, 1, threads);
+        long tokenized = System.nanoTime();
+
+        Set<String> stoplist = new LinkedHashSet<>(Arrays.asList(ENGLISH_STOPWORDS));
+        for (char c = 'a'; c <= 'z'; c++) {
+            stoplist.add(String.valueOf(c));
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            stoplist.add(String.valueOf(c));
+        }
+        int maxDocFreq = (int) Math.floor(maxDocFraction * names.length);
+        long[] written = merge(segments, stoplist, maxDocFreq, Paths.get(outputDir, "inverted_index.txt").toString());
+        writeDocumentIdMap(names, Paths.get(outputDir, "document_id_map.txt").toString());
+        writeStoplist(stoplist, Paths.get(outputDir, "generated_stoplist.txt").toString());
+        long done = System.nanoTime();
+
+        long tokens = 0;
+        for (Segment segment : segments) {
+            tokens += segment.tokens;
+        }
+        double tokenizeSeconds = (tokenized - start) / 1e9;
+        double totalSeconds = (done - start) / 1e9;
+        System.out.printf(Locale.ROOT, "Indexed %,d documents (%,d tokens) with %d thread%s%n", names.length, tokens,
+                threads, threads == 1 ? "" : "s");
+        System.out.printf(Locale.ROOT, "  tokenize : %.2f s (%,.0f docs/sec)%n", tokenizeSeconds,
+                names.length / Math.max(tokenizeSeconds, 1e-9));
+        System.out.printf(Locale.ROOT, "  merge    : %.2f s, %,d terms and %,d postings written, %,d stoplisted%n",
+                (done - tokenized) / 1e9, written[0], written[1], stoplist.size());
+        System.out.printf(Locale.ROOT, "  total    : %.2f s (%,.0f docs/sec), peak heap %.1f MB%n", totalSeconds,
+                names.length / Math.max(totalSeconds, 1e-9), peakHeapBytes() / (1024.0 * 1024.0));
+    }
+
+    // New documents become one segment with the next free doc ids. A document whose name is already indexed is
+    // replaced: its old id is tombstoned. Names are relative to the index directory when the file lies inside it.
+    public static void add(String indexDir, List<Path> sources, int threads) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path source : sources) {
+            if (Files.isDirectory(source)) {
+                File[] found = source.toFile().listFiles((dir, name) -> {
+                    String lower = name.toLowerCase(Locale.ROOT);
+                    return lower.endsWith(".html") || lower.endsWith(".htm");
+                });
+                if (found == null) {
+                    throw new IOException("Cannot list directory " + source);
+                }
+                Arrays.sort(found);
+                for (File file : found) {
+                    files.add(file.toPath());
+                }
+            } else {
+                files.add(source);
+            }
+        }
+        if (files.isEmpty()) {
+            System.out.println("No documents to add.");
+            return;
+        }
+
+        Path base = Paths.get(indexDir).toAbsolutePath().normalize();
+        String mapFile = Paths.get(indexDir, "document_id_map.txt").toString();
+        SegmentSet.withLock(indexDir, () -> {
+            Map<Integer, String> documentIdToFilename = DataLoader.loadDocumentIdMap(mapFile);
+            int firstDocId = 1;
+            for (int docId : documentIdToFilename.keySet()) {
+                firstDocId = Math.max(firstDocId, docId + 1);
+            }
+            String[] names = new String[files.size()];
+            Set<String> added = new LinkedHashSet<>();
+            for (int i = 0; i < names.length; i++) {
+                Path file = files.get(i).toAbsolutePath().normalize();
+                names[i] = file.startsWith(base) ? base.relativize(file).toString() : file.toString();
+                added.add(names[i]);
+            }
+            List<Integer> replaced = new ArrayList<>();
+            for (Map.Entry<Integer, String> e : documentIdToFilename.entrySet()) {
+                if (added.contains(e.getValue())) {
+                    replaced.add(e.getKey());
+                }
+            }
+
+            long start = System.nanoTime();
+            List<Segment> segments = tokenizeAll(files.toArray(new Path[0]), firstDocId, threads);
+            Set<String> stoplist = DataLoader.loadStoplist(Paths.get(indexDir, "generated_stoplist.txt").toString());
+            InvertedIndex.Builder builder = new InvertedIndex.Builder();
+            for (Segment segment : segments) {
+                for (Map.Entry<String, TermBuffer> e : segment.terms.entrySet()) {
+                    if (!stoplist.contains(e.getKey()) && !isJunk(e.getKey())) {
+                        e.getValue().addTo(builder, e.getKey());
+                    }
+                }
+            }
+            SegmentSet.addSegment(indexDir, builder.build());
+            try (BufferedWriter writer = new BufferedWriter(new FileWriter(mapFile, true))) {
+                for (int i = 0; i < names.length; i++) {
+                    writer.write(names[i] + "," + (firstDocId + i) + "\n");
+                }
+            }
+            if (!replaced.isEmpty()) {
+                SegmentSet.markDeleted(indexDir, replaced);
+            }
+            System.out.printf(Locale.ROOT, "Added %,d documents (ids %d-%d, %d replaced) in %.2f s%n", names.length,
+                    firstDocId, firstDocId + names.length - 1, replaced.size(), (System.nanoTime() - start) / 1e9);
+            return null;
+        });
+    }
+
+    // Tombstones every doc id filed under one of the names; the postings go away at the next merge.
+    public static void delete(String indexDir, List<String> names) throws IOException {
+        SegmentSet.withLock(indexDir, () -> {
+            Map<Integer, String> documentIdToFilename = DataLoader
+                    .loadDocumentIdMap(Paths.get(indexDir, "document_id_map.txt").toString());
+            List<Integer> docIds = new ArrayList<>();
+            for (Map.Entry<Integer, String> e : documentIdToFilename.entrySet()) {
+                if (names.contains(e.getValue())) {
+                    docIds.add(e.getKey());
+                }
+            }
+            if (docIds.isEmpty()) {
+                System.out.println("No indexed document named " + names);
+                return null;
+            }
+            SegmentSet.markDeleted(indexDir, docIds);
+            System.out.println("Deleted doc ids " + docIds);
+            return null;
+        });
+    }
+
+    // files[i] gets doc id firstDocId + i.
+    private static List<Segment> tokenizeAll(Path[] files, int firstDocId, int threads) throws IOException {
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Segment>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    Segment segment = new Segment();
+                    for (int i; (i = next.getAndIncrement()) < files.length;) {
+                        String content;
+                        try {
+                            content = new String(Files.readAllBytes(files[i]));
+                        } catch (IOException e) {
+                            System.err.println("Error reading document " + files[i] + ": " + e.getMessage());
+                            continue;
+                        }
+                        segment.addDocument(firstDocId + i, Analyzer.tokens(content, true));
+                    }
+                    return segment;
+                }));
+            }
+            List<Segment> segments = new ArrayList<>();
+            for (Future<Segment> future : futures) {
+                segments.add(future.get());
+            }
+            return segments;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while indexing", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Indexing thread failed: " + e.getCause(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // Walks all segments in term order; a term's lists from different segments cover disjoint documents and are
+    // interleaved by doc id. Stoplisted terms are diverted to the stoplist instead of the index.
+    // Returns { terms written, postings written }.
+    private static long[] merge(List<Segment> segments, Set<String> stoplist, int maxDocFreq, String filename)
+            throws IOException {
+        PriorityQueue<SegmentCursor> queue = new PriorityQueue<>((a, b) -> a.term().compareTo(b.term()));
+        for (Segment segment : segments) {
+            SegmentCursor cursor = new SegmentCursor(segment);
+            if (cursor.hasTerm()) {
+                queue.add(cursor);
+            }
+        }
+        long terms = 0;
+        long postings = 0;
+        List<TermBuffer> lists = new ArrayList<>();
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename), 1 << 16)) {
+            writer.write("Word,DocumentID,Positions\n");
+            StringBuilder line = new StringBuilder();
+            while (!queue.isEmpty()) {
+                String term = queue.peek().term();
+                lists.clear();
+                while (!queue.isEmpty() && queue.peek().term().equals(term)) {
+                    SegmentCursor cursor = queue.poll();
+                    lists.add(cursor.buffer());
+                    cursor.advance();
+                    if (cursor.hasTerm()) {
+                        queue.add(cursor);
+                    }
+                }
+                int docFreq = 0;
+                for (TermBuffer list : lists) {
+                    docFreq += list.docCount;
+                }
+                if (stoplist.contains(term) || isJunk(term) || docFreq > maxDocFreq) {
+                    stoplist.add(term);
+                    continue;
+                }
+                int[] next = new int[lists.size()];
+                for (int n = 0; n < docFreq; n++) {
+                    int pick = -1;
+                    for (int k = 0; k < lists.size(); k++) {
+                        if (next[k] < lists.get(k).docCount
+                                && (pick < 0 || lists.get(k).docIds[next[k]] < lists.get(pick).docIds[next[pick]])) {
+                            pick = k;
+                        }
+                    }
+                    TermBuffer list = lists.get(pick);
+                    int d = next[pick]++;
+                    line.setLength(0);
+                    line.append(term).append(',').append(list.docIds[d]).append(",\"[");
+                    for (int p = d == 0 ? 0 : list.positionEnds[d - 1]; p < list.positionEnds[d]; p++) {
+                        if (p > (d == 0 ? 0 : list.positionEnds[d - 1])) {
+                            line.append(", ");
+                        }
+                        line.append(list.positions[p]);
+                    }
+                    writer.append(line).append("]\"\n");
+                }
+                terms++;
+                postings += docFreq;
+            }
+        }
+        return new long[] { terms, postings };
+    }
+
+    private static boolean isJunk(String term) {
+        if (term.length() < JUNK_TOKEN_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < term.length(); i++) {
+            if (Character.isDigit(term.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeDocumentIdMap(String[] names, String filename) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
+            writer.write("DocumentName,DocumentID\n");
+            for (int i = 0; i < names.length; i++) {
+                writer.write(names[i] + "," + (i + 1) + "\n");
+            }
+        }
+    }
+
+    private static void writeStoplist(Set<String> stoplist, String filename) throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filename))) {
+            for (String word : stoplist) {
+                writer.write(word);
+                writer.write('\n');
+            }
+        }
+    }
+
+    // Sum of the heap pools' peaks since the start of indexing: an upper bound on the true peak, since the pools
+    // need not peak together.
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    // One thread's postings: term -> growable arrays of doc ids and (1-based) positions.
+    private static final class Segment {
+        final Map<String, TermBuffer> terms = new HashMap<>();
+        long tokens;
+
+        void addDocument(int docId, List<String> words) {
+            for (int i = 0; i < words.size(); i++) {
+                terms.computeIfAbsent(words.get(i), word -> new TermBuffer()).add(docId, i + 1);
+            }
+            tokens += words.size();
+        }
+    }
+
+    private static final class TermBuffer {
+        int[] docIds = new int[1];
+        int[] positionEnds = new int[1]; // positions of docIds[d] are positions[positionEnds[d - 1] .. positionEnds[d])
+        int[] positions = new int[2];
+        int docCount;
+        int positionCount;
+
+        void add(int docId, int position) {
+            if (docCount == 0 || docIds[docCount - 1] != docId) {
+                if (docCount == docIds.length) {
+                    docIds = Arrays.copyOf(docIds, docCount * 2);
+                    positionEnds = Arrays.copyOf(positionEnds, docCount * 2);
+                }
+                docIds[docCount++] = docId;
+            }
+            if (positionCount == positions.length) {
+                positions = Arrays.copyOf(positions, positionCount * 2);
+            }
+            positions[positionCount++] = position;
+            positionEnds[docCount - 1] = positionCount;
+        }
+
+        void addTo(InvertedIndex.Builder builder, String term) {
+            for (int d = 0; d < docCount; d++) {
+                List<Integer> docPositions = new ArrayList<>();
+                for (int p = d == 0 ? 0 : positionEnds[d - 1]; p < positionEnds[d]; p++) {
+                    docPositions.add(positions[p]);
+                }
+                builder.add(term, docIds[d], docPositions);
+            }
+        }
+    }
+
+    private static final class SegmentCursor {
+        private final Segment segment;
+        private final String[] sortedTerms;
+        private int index;
+
+        SegmentCursor(Segment segment) {
+            this.segment = segment;
+            this.sortedTerms = segment.terms.keySet().toArray(new String[0]);
+            Arrays.sort(sortedTerms);
+        }
+
+        boolean hasTerm() {
+            return index < sortedTerms.length;
+        }
+
+        String term() {
+            return sortedTerms[index];
+        }
+
+        TermBuffer buffer() {
+            return segment.terms.get(sortedTerms[index]);
+        }
+
+        // Drops the finished term so the segment's memory shrinks as the merge proceeds.
+        void advance() {
+            segment.terms.remove(sortedTerms[index]);
+            sortedTerms[index++] = null;
+        }
+    }
+}
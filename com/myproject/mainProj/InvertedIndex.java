@@ -0,0 +1,322 @@
+package com.myproject.mainProj;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// **File:** InvertedIndex.java
+// **Purpose:** Term id -> Postings lookup shared by the search paths. Term ids come from the TermDictionary and
+// double as slots in a compiled IndexSegment; segment-backed postings are decoded lazily on first use.
+// Also holds the per-document token counts that BM25 length normalisation needs, and the forward index for
+// per-document lookups (loaded with the segment, or built from the postings on first use).
+//
+// An index can also be a read-only union of several parts (the base index plus incremental segments, see
+// SegmentSet): terms are merged into one dictionary, each term's postings are stitched together from the parts
+// on first use, and documents marked deleted are filtered out on the way.
+class InvertedIndex {
+
+    // Where postings not yet on the heap come from: a compiled segment, or the parts of a combined index.
+    interface PostingsSource {
+        Postings postings(int termIndex);
+
+        int docFreq(int termIndex);
+    }
+
+    private final TermDictionary dictionary;
+    private final Postings[] postings;
+    private final PostingsSource source;
+    private final List<IndexSegment> segments;
+    private final int[] docLengths;
+    private final int docCount;
+    private final double averageDocLength;
+    private final Bm25 bm25;
+    private volatile ForwardIndex forwardIndex;
+    private volatile Autocomplete autocomplete;
+
+    private InvertedIndex(TermDictionary dictionary, Postings[] postings, PostingsSource source,
+            List<IndexSegment> segments, int[] docLengths) {
+        this.dictionary = dictionary;
+        this.postings = postings;
+        this.source = source;
+        this.segments = segments;
+        this.docLengths = docLengths;
+        int count = 0;
+        long totalLength = 0;
+        for (int docLength : docLengths) {
+            if (docLength > 0) {
+                count++;
+                totalLength += docLength;
+            }
+        }
+        this.docCount = count;
+        this.averageDocLength = count > 0 ? (double) totalLength / count : 0;
+        this.bm25 = new Bm25(this);
+    }
+
+    public static InvertedIndex open(IndexSegment segment) {
+        String[] terms = new String[segment.termCount()];
+        for (int t = 0; t < terms.length; t++) {
+            terms[t] = segment.term(t);
+        }
+        return new InvertedIndex(new TermDictionary(terms), new Postings[terms.length], segment, List.of(segment),
+                segment.docLengths());
+    }
+
+    // One index over all parts; their documents must be disjoint. docFreq() still counts deleted documents until
+    // a merge drops them (the postings themselves never contain them), so BM25 and suggestions stay cheap.
+    public static InvertedIndex combine(List<InvertedIndex> parts, BitSet deleted) {
+        List<String> terms = new ArrayList<>();
+        int[] next = new int[parts.size()];
+        while (true) {
+            String smallest = null;
+            for (int p = 0; p < parts.size(); p++) {
+                if (next[p] < parts.get(p).termCount()) {
+                    String term = parts.get(p).term(next[p]);
+                    if (smallest == null || term.compareTo(smallest) < 0) {
+                        smallest = term;
+                    }
+                }
+            }
+            if (smallest == null) {
+                break;
+            }
+            for (int p = 0; p < parts.size(); p++) {
+                if (next[p] < parts.get(p).termCount() && parts.get(p).term(next[p]).equals(smallest)) {
+                    next[p]++;
+                }
+            }
+            terms.add(smallest);
+        }
+
+        int[] docLengths = new int[0];
+        List<IndexSegment> segments = new ArrayList<>();
+        for (InvertedIndex part : parts) {
+            int[] partLengths = part.docLengths();
+            if (partLengths.length > docLengths.length) {
+                docLengths = Arrays.copyOf(docLengths, partLengths.length);
+            }
+            for (int docId = 0; docId < partLengths.length; docId++) {
+                if (partLengths[docId] > 0 && !deleted.get(docId)) {
+                    docLengths[docId] = partLengths[docId];
+                }
+            }
+            segments.addAll(part.segments());
+        }
+        TermDictionary dictionary = new TermDictionary(terms.toArray(new String[0]));
+        return new InvertedIndex(dictionary, new Postings[terms.size()], new PartsSource(dictionary, parts, deleted),
+                segments, docLengths);
+    }
+
+    private static final class PartsSource implements PostingsSource {
+        private final TermDictionary dictionary;
+        private final List<InvertedIndex> parts;
+        private final BitSet deleted;
+
+        PartsSource(TermDictionary dictionary, List<InvertedIndex> parts, BitSet deleted) {
+            this.dictionary = dictionary;
+            this.parts = parts;
+            this.deleted = deleted;
+        }
+
+        @Override
+        public Postings postings(int termIndex) {
+            String term = dictionary.term(termIndex);
+            List<Postings> lists = new ArrayList<>();
+            for (InvertedIndex part : parts) {
+                int local = part.termIndex(term);
+                if (local >= 0) {
+                    lists.add(part.postings(local).without(deleted));
+                }
+            }
+            return lists.size() == 1 ? lists.get(0) : Postings.union(lists);
+        }
+
+        @Override
+        public int docFreq(int termIndex) {
+            String term = dictionary.term(termIndex);
+            int docFreq = 0;
+            for (InvertedIndex part : parts) {
+                int local = part.termIndex(term);
+                if (local >= 0) {
+                    docFreq += part.docFreq(local);
+                }
+            }
+            return docFreq;
+        }
+    }
+
+    public int docCount() {
+        return docCount;
+    }
+
+    public double averageDocLength() {
+        return averageDocLength;
+    }
+
+    public int docLength(int docId) {
+        return docId >= 0 && docId < docLengths.length ? docLengths[docId] : 0;
+    }
+
+    int[] docLengths() {
+        return docLengths;
+    }
+
+    public Bm25 bm25() {
+        return bm25;
+    }
+
+    public ForwardIndex forwardIndex() {
+        ForwardIndex f = forwardIndex;
+        if (f == null) {
+            synchronized (this) {
+                f = forwardIndex;
+                if (f == null) {
+                    f = ForwardIndex.build(this);
+                    forwardIndex = f;
+                }
+            }
+        }
+        return f;
+    }
+
+    void setForwardIndex(ForwardIndex forwardIndex) {
+        this.forwardIndex = forwardIndex;
+    }
+
+    // Forward index if already loaded or built; unlike forwardIndex() this never builds one.
+    ForwardIndex loadedForwardIndex() {
+        return forwardIndex;
+    }
+
+    // Postings already on the heap for this slot (null while a segment-backed list is still undecoded).
+    Postings loadedPostings(int termIndex) {
+        return postings[termIndex];
+    }
+
+    // Memory-mapped files behind this index (none for an index parsed from text).
+    List<IndexSegment> segments() {
+        return segments;
+    }
+
+    public TermDictionary dictionary() {
+        return dictionary;
+    }
+
+    public int termCount() {
+        return dictionary.size();
+    }
+
+    public String term(int termIndex) {
+        return dictionary.term(termIndex);
+    }
+
+    public boolean containsTerm(String term) {
+        return termIndex(term) >= 0;
+    }
+
+    // Id of the term in the dictionary, or a negative value if it is not indexed.
+    public int termIndex(String term) {
+        return dictionary.id(term);
+    }
+
+    // Document frequency without decoding a segment-backed list.
+    public int docFreq(int termIndex) {
+        Postings p = postings[termIndex];
+        return p != null ? p.docFreq() : source.docFreq(termIndex);
+    }
+
+    public Autocomplete autocomplete() {
+        Autocomplete a = autocomplete;
+        if (a == null) {
+            synchronized (this) {
+                a = autocomplete;
+                if (a == null) {
+                    a = new Autocomplete(this);
+                    autocomplete = a;
+                }
+            }
+        }
+        return a;
+    }
+
+    public Postings postings(String term) {
+        int termIndex = termIndex(term);
+        return termIndex >= 0 ? postings(termIndex) : null;
+    }
+
+    public Postings postings(int termIndex) {
+        Postings p = postings[termIndex];
+        if (p == null) {
+            // Postings is immutable, so a racing thread decoding the same slot is harmless.
+            p = source.postings(termIndex);
+            postings[termIndex] = p;
+        }
+        return p;
+    }
+
+    // Collects (term, docId, positions) triples in any order and freezes them into compact postings. Each distinct
+    // term gets a provisional id on first sight, so only one instance of its string is kept; ids are renumbered
+    // into sorted order by build().
+    static class Builder {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> terms = new ArrayList<>();
+        private final List<Map<Integer, List<Integer>>> pending = new ArrayList<>();
+        private String lastTerm;
+        private int lastId = -1;
+
+        public void add(String term, int docId, List<Integer> positions) {
+            int id;
+            if (term.equals(lastTerm)) {
+                id = lastId; // the text index is grouped by word, so most lines repeat the previous term
+            } else {
+                id = ids.computeIfAbsent(term, k -> {
+                    terms.add(k);
+                    pending.add(new HashMap<>());
+                    return terms.size() - 1;
+                });
+                lastTerm = terms.get(id);
+                lastId = id;
+            }
+            pending.get(id).computeIfAbsent(docId, k -> new ArrayList<>()).addAll(positions);
+        }
+
+        public InvertedIndex build() {
+            Integer[] order = new Integer[terms.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> terms.get(a).compareTo(terms.get(b)));
+            String[] sortedTerms = new String[order.length];
+            Postings[] postings = new Postings[order.length];
+            int[] docLengths = new int[0];
+            for (int t = 0; t < order.length; t++) {
+                sortedTerms[t] = terms.get(order[t]);
+                Map<Integer, List<Integer>> docs = pending.set(order[t], null);
+                int[] docIds = new int[docs.size()];
+                int i = 0;
+                for (int docId : docs.keySet()) {
+                    docIds[i++] = docId;
+                }
+                Arrays.sort(docIds);
+                int[][] positions = new int[docIds.length][];
+                for (i = 0; i < docIds.length; i++) {
+                    positions[i] = docs.get(docIds[i]).stream().mapToInt(Integer::intValue).sorted().toArray();
+                    if (docIds[i] >= docLengths.length) {
+                        docLengths = Arrays.copyOf(docLengths, Math.max(docIds[i] + 1, docLengths.length * 2));
+                    }
+                    docLengths[docIds[i]] += positions[i].length;
+                }
+                postings[t] = Postings.encode(docIds, positions);
+            }
+            int maxDocId = docLengths.length - 1;
+            while (maxDocId >= 0 && docLengths[maxDocId] == 0) {
+                maxDocId--;
+            }
+            return new InvertedIndex(new TermDictionary(sortedTerms), postings, null, List.of(),
+                    Arrays.copyOf(docLengths, maxDocId + 1));
+        }
+    }
+}
@@ -1,23 +1,32 @@
 package com.myproject.mainProj;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.myproject.utils.JsonWriter;
 import com.myproject.utils.StatClasses;
-import com.myproject.utils.StatClasses.InvertedIndexEntry;
 import com.myproject.utils.StatClasses.QueryResult;
 
 // **File:** InvertedIndexSearcher.java (Main class)
 // **Purpose:** Contains the main method and orchestrates the search process.
 public class InvertedIndexSearcher {
 
-    private static HashMap<String, HashMap<Integer, List<Integer>>> invertedIndex = new HashMap<>();
-    private static List<InvertedIndexEntry> invertedIndexEntries = new ArrayList<>();
-    private static Map<String, String> stemmingDictionary = new HashMap<>();
-    private static Map<String, Set<Integer>> variantToDocIds = new HashMap<>();
+    private static InvertedIndex invertedIndex;
+    private static StemCache stems;
     public static Map<Integer, String> documentIdToFilename = new HashMap<>();
     private static HashSet<String> stoplist = new HashSet<>();
+    private static SearchContext context;
+    private static boolean profile; // -PROFILE: attach a QueryProfile to every query result
+    // Queries of a -QUERY_FILE in flight per batch thread; completed ones wait here until earlier ones are written.
+    private static final int BATCH_WINDOW_PER_THREAD = 4;
 
     public static void main(String[] args) {
         // System.out.println("Current Working Directory: " + System.getProperty("user.dir"));
@@ -34,98 +43,212 @@ public class InvertedIndexSearcher {
 
         stoplist = DataLoader.loadStoplist(Paths.get(baseDir, "generated_stoplist.txt").toString());
         // System.out.println("stoplist is " + stoplist);
-        stemmingDictionary = DataLoader
-                .loadStemmingDictionary(Paths.get(baseDir, "stemming_dictionary.txt").toString());
+        stems = StemCache.open(baseDir);
         documentIdToFilename = DataLoader.loadDocumentIdMap(Paths.get(baseDir, "document_id_map.txt").toString());
 
-        DataLoader.loadInvertedIndex(Paths.get(baseDir, "inverted_index.txt").toString(), parser.doStemming,
-                invertedIndex, invertedIndexEntries, variantToDocIds, stemmingDictionary);
+        if (parser.compileIndex) {
+            String segmentFile = Paths.get(baseDir, IndexSegment.FILE_NAME).toString();
+            String documentStoreFile = Paths.get(baseDir, DocumentStore.FILE_NAME).toString();
+            try {
+                DataLoader.compileInvertedIndex(Paths.get(baseDir, "inverted_index.txt").toString(), segmentFile,
+                        parser.doStemming, stems);
+                System.out.println("Compiled index written to " + segmentFile + " (with " + ForwardIndex.FILE_NAME + ")");
+
+                // Document names are relative to the base directory
+                Map<Integer, String> documentPaths = new HashMap<>();
+                for (Map.Entry<Integer, String> e : documentIdToFilename.entrySet()) {
+                    documentPaths.put(e.getKey(), Paths.get(baseDir).resolve(e.getValue()).toString());
+                }
+                DocumentStore.write(documentStoreFile, documentPaths);
+                System.out.println("Document store written to " + documentStoreFile);
+            } catch (IOException e) {
+                System.out.println("Error compiling index: " + e.getMessage());
+            }
+            return;
+        }
+
+        invertedIndex = DataLoader.loadInvertedIndexSegment(Paths.get(baseDir, IndexSegment.FILE_NAME).toString(),
+                parser.doStemming);
+        if (invertedIndex == null) {
+            invertedIndex = DataLoader.loadInvertedIndex(Paths.get(baseDir, "inverted_index.txt").toString(),
+                    parser.doStemming, stems);
+        }
+        invertedIndex = DataLoader.withSegments(baseDir, invertedIndex, parser.doStemming, stems);
+        if (parser.memoryReport) {
+            System.out.println(MemoryReport.describe(invertedIndex));
+        }
+
+        // No snippet deadline: a results file must not depend on how busy the machine was.
+        SnippetGenerator snippetGenerator = new SnippetGenerator(documentIdToFilename,
+                DataLoader.loadDocumentStore(Paths.get(baseDir, DocumentStore.FILE_NAME).toString()),
+                parser.snippetCacheBytes, SnippetGenerator.newExecutor(parser.snippetThreads),
+                SnippetGenerator.NO_DEADLINE);
+        context = new SearchContext(invertedIndex, documentIdToFilename, stoplist, stems,
+                parser.doStemming, snippetGenerator, new QueryCache(parser.queryCacheBytes, parser.queryCacheTtlSeconds));
+
+        Metrics.setEnabled(parser.metrics);
+        profile = parser.profile;
 
         // Perform the search or print operation
         try {
-            List<QueryResult> allResults = new ArrayList<>();
-
             if (parser.queryFile != null) {
-                // Batch query processing
+                // Batch query processing; results are written in file order as soon as they are ready. Queries
+                // print their diagnostics from worker threads, so those go to stderr and stdout carries nothing
+                // but whole result lines.
                 List<String> queryLines = DataLoader.readQueriesFromFile(parser.queryFile);
-                allResults.addAll(processBatchQueries(queryLines, parser.doStemming, parser.snippetSize));
-                // Output all results for batch query
-                outputBatchResults(allResults, parser.outputMode, parser.outputFilename);
+                PrintStream stdout = System.out;
+                System.setOut(System.err);
+                try (ResultOutput output = new ResultOutput(parser.outputMode, parser.resultsTo,
+                        parser.outputFilename, stdout)) {
+                    processBatchQueries(queryLines, parser.snippetSize, parser.disjunctive, parser.topK,
+                            parser.batchThreads, output);
+                } finally {
+                    System.setOut(stdout);
+                }
             } else if (parser.searchType != null && parser.searchValue != null) {
                 // Single query processing
-                QueryResult result = processSingleQuery(parser.searchType, parser.searchValue, parser.doStemming,
-                        parser.snippetSize);
+                QueryResult result = processSingleQuery(parser.searchType, parser.searchValue, parser.snippetSize,
+                        parser.disjunctive, parser.topK);
                 if (result != null) {
-                    allResults.add(result);
                     // Output results for single query
-                    outputBatchResults(allResults, parser.outputMode, parser.outputFilename);
+                    try (ResultOutput output = new ResultOutput(parser.outputMode, parser.resultsTo,
+                            parser.outputFilename, System.out)) {
+                        output.add(result);
+                    }
                 }
                 // System.out.println("Search completed.");
             } else if (parser.printType != null && parser.printValue != null) {
                 // Print index entries
                 QueryResult result = processPrintRequest(parser.printType, parser.printValue);
                 if (result != null) {
-                    allResults.add(result);
                     // Output results for print request
-                    outputBatchResults(allResults, parser.outputMode, parser.outputFilename);
+                    try (ResultOutput output = new ResultOutput(parser.outputMode, parser.resultsTo,
+                            parser.outputFilename, System.out)) {
+                        output.add(result);
+                    }
                 }
                 System.out.println("Inverted index entries have been processed.");
             }
-            DataLoader.saveStemmingDictionary(stemmingDictionary, "stemming_dictionary.txt");
+            stems.flush();
+            if (parser.metrics) {
+                System.out.print(Metrics.report());
+            }
         } catch (Exception e) {
             e.printStackTrace();
         }
     }
 
-    private static List<QueryResult> processBatchQueries(List<String> queryLines, boolean doStemming, int snippetSize) {
-        List<QueryResult> allResults = new ArrayList<>();
-        int queryNumber = 1;
-        for (String queryLine : queryLines) {
-            String[] queryParts = queryLine.trim().split("\\s+", 2);
-            if (queryParts.length < 2) {
-                System.out.println("Invalid query line: " + queryLine);
-                continue;
+    // Runs the queries of a query file on `threads` workers over the shared, read-only index (the caches are
+    // thread-safe) and hands the results to output in file order: each one is written as soon as it and every
+    // query before it have finished. At most BATCH_WINDOW_PER_THREAD queries per worker are queued or running, so
+    // a slow query holds back output, not memory. threads <= 1 runs them one by one on this thread.
+    private static void processBatchQueries(List<String> queryLines, int snippetSize, boolean disjunctive, int topK,
+                                            int threads, ResultOutput output) throws IOException {
+        ExecutorService executor = newBatchExecutor(threads);
+        int window = Math.max(1, threads) * BATCH_WINDOW_PER_THREAD;
+        ArrayDeque<Future<QueryResult>> inFlight = new ArrayDeque<>();
+        try {
+            int queryNumber = 1;
+            for (String queryLine : queryLines) {
+                String[] queryParts = queryLine.trim().split("\\s+", 2);
+                if (queryParts.length < 2) {
+                    System.out.println("Invalid query line: " + queryLine);
+                    continue;
+                }
+                String queryCommand = queryParts[0];
+                String queryArgument = queryParts[1];
+
+                String searchType;
+                String searchValue;
+                if (queryCommand.equalsIgnoreCase("-SEARCH=WORD")) {
+                    searchType = "WORD";
+                    searchValue = queryArgument;
+                } else if (queryCommand.equalsIgnoreCase("-SEARCH=DOC")) {
+                    searchType = "DOC";
+                    searchValue = queryArgument;
+                } else if (queryCommand.equalsIgnoreCase("-SEARCH=QUERY")) {
+                    searchType = "QUERY";
+                    searchValue = QueryParser.unquoteArgument(queryArgument);
+                } else if (queryCommand.equalsIgnoreCase("-SEARCH=SUGGEST")) {
+                    searchType = "SUGGEST";
+                    searchValue = queryArgument;
+                } else {
+                    System.out.println("Unknown query command: " + queryCommand);
+                    continue;
+                }
+
+                String queryString = "query " + queryNumber + ": " + queryLine;
+                FutureTask<QueryResult> task = new FutureTask<>(() -> {
+                    QueryResult result = processSingleQuery(searchType, searchValue, snippetSize, disjunctive, topK);
+                    if (result != null) {
+                        result.queryString = queryString;
+                    }
+                    return result;
+                });
+                if (executor == null) {
+                    task.run();
+                } else {
+                    executor.execute(task);
+                }
+                inFlight.add(task);
+                queryNumber++;
+
+                // Write the finished prefix; wait for the oldest query only when the window is full.
+                while (!inFlight.isEmpty() && (inFlight.size() >= window || inFlight.peek().isDone())) {
+                    writeBatchResult(inFlight.poll(), output);
+                }
             }
-            String queryCommand = queryParts[0];
-            String queryArgument = queryParts[1];
-
-            String searchType = null;
-            String searchValue = null;
-            if (queryCommand.equalsIgnoreCase("-SEARCH=WORD")) {
-                searchType = "WORD";
-                searchValue = queryArgument;
-            } else if (queryCommand.equalsIgnoreCase("-SEARCH=DOC")) {
-                searchType = "DOC";
-                searchValue = queryArgument;
-            } else if (queryCommand.equalsIgnoreCase("-SEARCH=QUERY")) {
-                searchType = "QUERY";
-                searchValue = queryArgument;
-            } else {
-                System.out.println("Unknown query command: " + queryCommand);
-                continue;
+            while (!inFlight.isEmpty()) {
+                writeBatchResult(inFlight.poll(), output);
             }
-
-            QueryResult result = processSingleQuery(searchType, searchValue, doStemming, snippetSize);
-            if (result != null) {
-                result.queryString = "query " + queryNumber + ": " + queryLine;
-                allResults.add(result);
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
             }
-            queryNumber++;
         }
-        return allResults;
     }
 
-    public static QueryResult processSingleQuery(String searchType, String searchValue, boolean doStemming,
-                                                 int snippetSize) {
+    // Daemon pool for batch queries, or null (queries on the calling thread) for threads <= 1.
+    private static ExecutorService newBatchExecutor(int threads) {
+        if (threads <= 1) {
+            return null;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // A query that failed unexpectedly is reported and skipped, like one that failed with an IOException.
+    private static void writeBatchResult(Future<QueryResult> task, ResultOutput output) throws IOException {
+        QueryResult result;
+        try {
+            result = task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a batch query");
+        } catch (ExecutionException e) {
+            System.out.println("Error during search: " + e.getCause());
+            return;
+        }
+        if (result != null) {
+            output.add(result);
+        }
+    }
+
+    public static QueryResult processSingleQuery(String searchType, String searchValue, int snippetSize,
+                                                 boolean disjunctive, int topK) {
         try {
             if (searchType.equals("WORD")) {
-                return SearchProcessor.searchByWord(searchValue.toLowerCase(), doStemming, invertedIndex,
-                        documentIdToFilename, snippetSize, stemmingDictionary);
+                return SearchProcessor.searchByWord(searchValue.toLowerCase(), context, snippetSize);
             } else if (searchType.equals("DOC")) {
                 return SearchProcessor.searchByDocument(Integer.parseInt(searchValue), invertedIndex);
             } else if (searchType.equals("QUERY")) {
-                return SearchProcessor.searchByQuery(searchValue, doStemming, invertedIndex, stoplist,
-                        documentIdToFilename, snippetSize, stemmingDictionary);
+                return SearchProcessor.searchByQuery(searchValue, context, snippetSize, disjunctive, topK, profile);
+            } else if (searchType.equals("SUGGEST")) {
+                return SearchProcessor.suggest(searchValue, invertedIndex, Autocomplete.MAX_SUGGESTIONS);
             }
         } catch (IOException e) {
             System.out.println("Error during search: " + e.getMessage());
@@ -136,9 +259,9 @@ public class InvertedIndexSearcher {
     private static QueryResult processPrintRequest(String printType, String printValue) {
         try {
             if (printType.equals("WORD")) {
-                return IndexPrinter.getIndexByWord(printValue.toLowerCase(), invertedIndexEntries);
+                return IndexPrinter.getIndexByWord(printValue.toLowerCase(), invertedIndex);
             } else if (printType.equals("DOC")) {
-                return IndexPrinter.getIndexByDocument(Integer.parseInt(printValue), invertedIndexEntries);
+                return IndexPrinter.getIndexByDocument(Integer.parseInt(printValue), invertedIndex);
             }
         } catch (IOException e) {
             System.out.println("Error during print request: " + e.getMessage());
@@ -146,17 +269,103 @@ public class InvertedIndexSearcher {
         return null;
     }
 
-    private static void outputBatchResults(List<QueryResult> allResults, String outputMode, String outputFilename)
-            throws IOException {
-        if (outputMode.equals("FILE") || outputMode.equals("BOTH")) {
-            try (BufferedWriter writer = new BufferedWriter(new FileWriter(outputFilename))) {
-                StatClasses.writeBatchResultsToFile(allResults, writer, documentIdToFilename);
-            } catch (IOException e) {
-                System.out.println("Error writing to output file: " + e.getMessage());
+    // Where results go as they are produced. JSON lines are streamed to the output file, stdout or both
+    // (-RESULTS_TO) through one JsonWriter, serialised once even when written to both. Only the GUI keeps every
+    // result, since it shows them all at the end.
+    private static final class ResultOutput implements Closeable {
+        private final Writer out; // null in GUI-only mode
+        private final JsonWriter json; // over out
+        private final Writer file;
+        private final Writer stdout;
+        private final List<QueryResult> guiResults; // null without the GUI
+
+        ResultOutput(String outputMode, String resultsTo, String outputFilename, PrintStream results)
+                throws IOException {
+            boolean writeJson = outputMode.equals("FILE") || outputMode.equals("BOTH");
+            Writer toFile = null;
+            if (writeJson && !resultsTo.equals("STDOUT")) {
+                try {
+                    toFile = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFilename),
+                            StandardCharsets.UTF_8), 1 << 16);
+                } catch (IOException e) {
+                    System.out.println("Error writing to output file: " + e.getMessage());
+                }
+            }
+            file = toFile;
+            stdout = writeJson && !resultsTo.equals("FILE")
+                    ? new BufferedWriter(new OutputStreamWriter(results, StandardCharsets.UTF_8), 1 << 16) : null;
+            out = file != null && stdout != null ? new TeeWriter(file, stdout) : file != null ? file : stdout;
+            json = out != null ? new JsonWriter(out) : null;
+            guiResults = outputMode.equals("GUI") || outputMode.equals("BOTH") ? new ArrayList<>() : null;
+        }
+
+        // Called from one thread only.
+        void add(QueryResult result) throws IOException {
+            if (json != null) {
+                long lap = Metrics.now();
+                StatClasses.writeResult(json, result, documentIdToFilename);
+                out.write('\n');
+                Metrics.SERIALIZE.since(lap);
+                if (stdout != null) {
+                    stdout.flush(); // a reader of stdout gets each line as soon as it is written
+                }
+            }
+            if (guiResults != null) {
+                guiResults.add(result);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (file != null) {
+                file.close();
+            }
+            if (stdout != null) {
+                stdout.flush(); // System.out itself stays open
             }
+            if (guiResults != null) {
+                StatClasses.displayBatchResultsInGUI(guiResults, documentIdToFilename);
+            }
+        }
+    }
+
+    // Writes everything to two writers.
+    private static final class TeeWriter extends Writer {
+        private final Writer first;
+        private final Writer second;
+
+        TeeWriter(Writer first, Writer second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            first.write(c);
+            second.write(c);
         }
-        if (outputMode.equals("GUI") || outputMode.equals("BOTH")) {
-            StatClasses.displayBatchResultsInGUI(allResults, documentIdToFilename);
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            first.write(buffer, offset, length);
+            second.write(buffer, offset, length);
+        }
+
+        @Override
+        public void write(String s, int offset, int length) throws IOException {
+            first.write(s, offset, length);
+            second.write(s, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            first.flush();
+            second.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
         }
     }
 }
@@ -0,0 +1,21 @@
+package com.myproject.mainProj;
+
+// **File:** LatencyHistogramMBean.java
+// **Purpose:** JMX view of one search stage's LatencyHistogram (registered by Metrics as
+// com.myproject.mainProj:type=Stage,name=<stage>). Times are in microseconds.
+public interface LatencyHistogramMBean {
+
+    long getCount();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+}
@@ -0,0 +1,78 @@
+package com.myproject.mainProj;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+// **File:** LruCache.java
+// **Purpose:** Thread-safe LRU cache bounded by an estimated byte budget instead of an entry count.
+class LruCache<K, V> {
+
+    private final long maxBytes;
+    private final ToLongFunction<V> weigher;
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f, true); // access order
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    LruCache(long maxBytes, ToLongFunction<V> weigher) {
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+    }
+
+    public synchronized V get(K key) {
+        V value = entries.get(key);
+        if (value != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return value;
+    }
+
+    public synchronized void put(K key, V value) {
+        long weight = weigher.applyAsLong(value);
+        if (weight > maxBytes) {
+            return; // would evict everything else and still not fit
+        }
+        V previous = entries.put(key, value);
+        if (previous != null) {
+            bytes -= weigher.applyAsLong(previous);
+        }
+        bytes += weight;
+        Iterator<Map.Entry<K, V>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= weigher.applyAsLong(eldest.next().getValue());
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void remove(K key) {
+        V value = entries.remove(key);
+        if (value != null) {
+            bytes -= weigher.applyAsLong(value);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized String stats() {
+        long lookups = hits + misses;
+        return String.format("entries=%d bytes=%d/%d hits=%d misses=%d hitRate=%.1f%% evictions=%d",
+                entries.size(), bytes, maxBytes, hits, misses, lookups == 0 ? 0.0 : 100.0 * hits / lookups, evictions);
+    }
+}
@@ -0,0 +1,59 @@
+package com.myproject.mainProj;
+
+import java.util.Locale;
+
+// **File:** MemoryReport.java
+// **Purpose:** Breaks down what the loaded index costs: measured heap after a GC, plus an estimate per structure
+// split into heap and memory-mapped bytes (mapped bytes live in the page cache, not the Java heap).
+final class MemoryReport {
+
+    private MemoryReport() {
+    }
+
+    public static String describe(InvertedIndex invertedIndex) {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc(); // best effort: a settled heap makes runs comparable
+        }
+        long usedHeap = runtime.totalMemory() - runtime.freeMemory();
+
+        long dictionaryBytes = 16 + 4L * invertedIndex.termCount();
+        long postingsHeap = 16 + 4L * invertedIndex.termCount();
+        int decoded = 0;
+        for (int t = 0; t < invertedIndex.termCount(); t++) {
+            dictionaryBytes += 40 + invertedIndex.term(t).length(); // Latin-1 compact strings
+            Postings postings = invertedIndex.loadedPostings(t);
+            if (postings != null) {
+                postingsHeap += postings.heapBytes();
+                decoded++;
+            }
+        }
+        long docLengthBytes = 16 + 4L * invertedIndex.docLengths().length;
+
+        StringBuilder report = new StringBuilder("Memory report\n");
+        line(report, "heap used after GC", String.format(Locale.ROOT, "%s (max %s)", mb(usedHeap), mb(runtime.maxMemory())));
+        line(report, "dictionary", String.format(Locale.ROOT, "%,d terms, %s heap", invertedIndex.termCount(), mb(dictionaryBytes)));
+        line(report, "postings", String.format(Locale.ROOT, "%,d of %,d lists decoded, %s heap", decoded,
+                invertedIndex.termCount(), mb(postingsHeap)));
+        if (!invertedIndex.segments().isEmpty()) {
+            long mapped = 0;
+            for (IndexSegment segment : invertedIndex.segments()) {
+                mapped += segment.sizeBytes();
+            }
+            line(report, "index segments", invertedIndex.segments().size() + " file(s), " + mb(mapped) + " mapped");
+        }
+        line(report, "doc lengths", String.format(Locale.ROOT, "%,d docs, %s heap", invertedIndex.docCount(), mb(docLengthBytes)));
+        ForwardIndex forwardIndex = invertedIndex.loadedForwardIndex();
+        line(report, "forward index", forwardIndex == null ? "not built yet"
+                : mb(forwardIndex.sizeBytes()) + (forwardIndex.isMapped() ? " mapped" : " heap"));
+        return report.toString();
+    }
+
+    private static void line(StringBuilder report, String label, String value) {
+        report.append(String.format(Locale.ROOT, "  %-20s: %s%n", label, value));
+    }
+
+    private static String mb(long bytes) {
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024.0));
+    }
+}
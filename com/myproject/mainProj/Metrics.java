@@ -0,0 +1,214 @@
+package com.myproject.mainProj;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+// **File:** Metrics.java
+// **Purpose:** Process-wide search instrumentation: a latency histogram per stage and a handful of counters, all
+// lock-free, read by the `stats` command and over JMX. Every recording site first checks one volatile flag, so
+// with metrics off a query pays a few field reads and no clock calls. Stages are timed as laps:
+//   long lap = Metrics.now(); ...; lap = Metrics.ANALYZE.since(lap); ...; Metrics.MATCH.since(lap);
+// The counters are cumulative across index reloads, unlike the per-snapshot cache statistics.
+final class Metrics {
+
+    private static volatile boolean enabled;
+
+    // Whole searchByQuery calls, cache hits included, and its stages.
+    static final LatencyHistogram QUERY = new LatencyHistogram("query");
+    // Parsing, stoplist filtering, stemming and dictionary lookups.
+    static final LatencyHistogram ANALYZE = new LatencyHistogram("analyze");
+    // Intersection or union of the postings, positional checks and BM25 scoring into the top k.
+    static final LatencyHistogram MATCH = new LatencyHistogram("match");
+    static final LatencyHistogram SNIPPETS = new LatencyHistogram("snippets");
+    // One document file read by SnippetGenerator (documents.bin lookups are not file reads).
+    static final LatencyHistogram READ_DOCUMENT = new LatencyHistogram("readDocument");
+    static final LatencyHistogram WORD = new LatencyHistogram("word");
+    // One result turned into JSON, for batch output, protocol replies and HTTP responses.
+    static final LatencyHistogram SERIALIZE = new LatencyHistogram("serialize");
+    private static final List<LatencyHistogram> STAGES =
+            Arrays.asList(QUERY, ANALYZE, MATCH, SNIPPETS, READ_DOCUMENT, WORD, SERIALIZE);
+
+    static final Counter QUERIES = new Counter();
+    // Document frequencies of the lists a query evaluated: an upper bound, since skipping reads fewer.
+    static final Counter POSTINGS_SCANNED = new Counter();
+    // Documents that satisfied the query and were scored.
+    static final Counter MATCHES = new Counter();
+    static final Counter DOCUMENTS_READ = new Counter();
+    static final Counter DOCUMENT_BYTES_READ = new Counter();
+    static final Counter STORE_SNIPPETS = new Counter();
+    static final Counter QUERY_CACHE_HITS = new Counter();
+    static final Counter QUERY_CACHE_MISSES = new Counter();
+    static final Counter SNIPPET_CACHE_HITS = new Counter();
+    static final Counter SNIPPET_CACHE_MISSES = new Counter();
+    static final Counter STEM_CACHE_HITS = new Counter();
+    static final Counter STEM_CACHE_MISSES = new Counter();
+    private static final List<Counter> COUNTERS = Arrays.asList(QUERIES, POSTINGS_SCANNED, MATCHES, DOCUMENTS_READ,
+            DOCUMENT_BYTES_READ, STORE_SNIPPETS, QUERY_CACHE_HITS, QUERY_CACHE_MISSES, SNIPPET_CACHE_HITS,
+            SNIPPET_CACHE_MISSES, STEM_CACHE_HITS, STEM_CACHE_MISSES);
+
+    private static boolean registered;
+
+    private Metrics() {
+    }
+
+    static final class Counter {
+        private final LongAdder adder = new LongAdder();
+
+        void increment() {
+            if (enabled) {
+                adder.increment();
+            }
+        }
+
+        void add(long n) {
+            if (enabled) {
+                adder.add(n);
+            }
+        }
+
+        long get() {
+            return adder.sum();
+        }
+    }
+
+    public static boolean enabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    // Start of a timed stage: the clock when metrics are on, 0 (record nothing) when they are off.
+    public static long now() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    public static void reset() {
+        for (LatencyHistogram stage : STAGES) {
+            stage.reset();
+        }
+        for (Counter counter : COUNTERS) {
+            counter.adder.reset();
+        }
+    }
+
+    // Registers com.myproject.mainProj:type=Search and one type=Stage bean per histogram with the platform
+    // MBean server, so jconsole or any JMX client can read them. Safe to call more than once.
+    public static synchronized void registerMBeans() {
+        if (registered) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new StandardMBean(new SearchMetrics(), SearchMetricsMBean.class),
+                    new ObjectName("com.myproject.mainProj:type=Search"));
+            for (LatencyHistogram stage : STAGES) {
+                server.registerMBean(new StandardMBean(stage, LatencyHistogramMBean.class),
+                        new ObjectName("com.myproject.mainProj:type=Stage,name=" + stage.name()));
+            }
+            registered = true;
+        } catch (JMException e) {
+            System.err.println("Cannot register search metrics with JMX: " + e.getMessage());
+        }
+    }
+
+    public static String report() {
+        StringBuilder report = new StringBuilder("Search metrics (" + (enabled ? "on" : "off") + ")\n");
+        for (LatencyHistogram stage : STAGES) {
+            report.append(String.format(Locale.ROOT, "  %-13s: %s%n", stage.name(), stage));
+        }
+        report.append(String.format(Locale.ROOT, "  %-13s: %,d queries, %,d postings scanned, %,d matches%n",
+                "counters", QUERIES.get(), POSTINGS_SCANNED.get(), MATCHES.get()));
+        report.append(String.format(Locale.ROOT, "  %-13s: %,d files (%,d bytes), %,d snippets from %s%n",
+                "documents", DOCUMENTS_READ.get(), DOCUMENT_BYTES_READ.get(), STORE_SNIPPETS.get(),
+                DocumentStore.FILE_NAME));
+        report.append(String.format(Locale.ROOT, "  %-13s: query %.1f%%, snippet %.1f%%, stem %.1f%%%n",
+                "cache hits", hitRate(QUERY_CACHE_HITS, QUERY_CACHE_MISSES),
+                hitRate(SNIPPET_CACHE_HITS, SNIPPET_CACHE_MISSES), hitRate(STEM_CACHE_HITS, STEM_CACHE_MISSES)));
+        return report.toString();
+    }
+
+    // Percentage of lookups that hit, 0 before the first lookup.
+    private static double hitRate(Counter hits, Counter misses) {
+        long h = hits.get();
+        long lookups = h + misses.get();
+        return lookups == 0 ? 0.0 : 100.0 * h / lookups;
+    }
+
+    private static final class SearchMetrics implements SearchMetricsMBean {
+
+        @Override
+        public boolean isEnabled() {
+            return Metrics.enabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            Metrics.setEnabled(enabled);
+        }
+
+        @Override
+        public long getQueries() {
+            return QUERIES.get();
+        }
+
+        @Override
+        public long getPostingsScanned() {
+            return POSTINGS_SCANNED.get();
+        }
+
+        @Override
+        public long getMatches() {
+            return MATCHES.get();
+        }
+
+        @Override
+        public long getDocumentsRead() {
+            return DOCUMENTS_READ.get();
+        }
+
+        @Override
+        public long getDocumentBytesRead() {
+            return DOCUMENT_BYTES_READ.get();
+        }
+
+        @Override
+        public long getStoreSnippets() {
+            return STORE_SNIPPETS.get();
+        }
+
+        @Override
+        public double getQueryCacheHitRate() {
+            return hitRate(QUERY_CACHE_HITS, QUERY_CACHE_MISSES);
+        }
+
+        @Override
+        public double getSnippetCacheHitRate() {
+            return hitRate(SNIPPET_CACHE_HITS, SNIPPET_CACHE_MISSES);
+        }
+
+        @Override
+        public double getStemCacheHitRate() {
+            return hitRate(STEM_CACHE_HITS, STEM_CACHE_MISSES);
+        }
+
+        @Override
+        public String report() {
+            return Metrics.report();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+}
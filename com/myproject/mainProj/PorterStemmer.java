@@ -74,210 +74,196 @@ public class PorterStemmer {
         }
     }
 
-    // Porter's stemming algorithm implementation
+    // Porter's stemming algorithm implementation. Allocates only the returned String: each thread reuses one
+    // stemmer and its buffer.
     public static String stem(String word) {
-        PorterStemmer stemmer = new PorterStemmer();
-        return stemmer.process(word);
+        return LOCAL.get().process(word);
     }
 
+    private static final ThreadLocal<PorterStemmer> LOCAL = ThreadLocal.withInitial(PorterStemmer::new);
+
+    private static final String[][] STEP2 = {
+            {"ational", "ate"}, {"tional", "tion"}, {"enci", "ence"}, {"anci", "ance"}, {"izer", "ize"},
+            {"abli", "able"}, {"alli", "al"}, {"entli", "ent"}, {"eli", "e"}, {"ousli", "ous"},
+            {"ization", "ize"}, {"ation", "ate"}, {"ator", "ate"}, {"alism", "al"}, {"iveness", "ive"},
+            {"fulness", "ful"}, {"ousness", "ous"}, {"aliti", "al"}, {"iviti", "ive"}, {"biliti", "ble"}
+    };
+
+    private static final String[][] STEP3 = {
+            {"icate", "ic"}, {"ative", ""}, {"alize", "al"}, {"iciti", "ic"}, {"ical", "ic"}, {"ful", ""},
+            {"ness", ""}
+    };
+
+    private static final String[] STEP4 = {
+            "al", "ance", "ence", "er", "ic", "able", "ible",
+            "ant", "ement", "ment", "ent", "ion", "ou", "ism",
+            "ate", "iti", "ous", "ive", "ize"
+    };
+
+    private char[] buffer = new char[32];
+    // The word being stemmed is w[0..k); the steps only ever shorten it, so it never outgrows its array.
+    private char[] w;
+    private int k;
+
     // Processes a word with Porter Stemming rules
     public String process(String word) {
-        word = word.toLowerCase();
-        if (word.length() < 3) return word;
-
-        word = step1a(word);
-        word = step1b(word);
-        word = step1c(word);
-        word = step2(word);
-        word = step3(word);
-        word = step4(word);
-        word = step5a(word);
-        word = step5b(word);
-        return word;
+        int length = word.length();
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+        word.getChars(0, length, buffer, 0);
+        return new String(buffer, 0, stem(buffer, length));
+    }
+
+    // Stems word[0..length) in place (lower-casing it first) and returns the stem's length. No allocation.
+    public int stem(char[] word, int length) {
+        for (int i = 0; i < length; i++) {
+            word[i] = Character.toLowerCase(word[i]);
+        }
+        if (length < 3) return length;
+
+        w = word;
+        k = length;
+        step1a();
+        step1b();
+        step1c();
+        replaceSuffix(STEP2);
+        replaceSuffix(STEP3);
+        step4();
+        step5a();
+        step5b();
+        w = null;
+        return k;
     }
 
     // Step 1a
-    private String step1a(String word) {
-        if (word.endsWith("sses")) {
-            return word.substring(0, word.length() - 2);
-        } else if (word.endsWith("ies")) {
-            return word.substring(0, word.length() - 3) + "i";
-        } else if (word.endsWith("ss")) {
-            return word;
-        } else if (word.endsWith("s")) {
-            return word.substring(0, word.length() - 1);
+    private void step1a() {
+        if (endsWith("sses")) {
+            k -= 2;
+        } else if (endsWith("ies")) {
+            w[k - 3] = 'i';
+            k -= 2;
+        } else if (endsWith("ss")) {
+            return;
+        } else if (endsWith("s")) {
+            k--;
         }
-        return word;
     }
 
     // Step 1b
-    private String step1b(String word) {
+    private void step1b() {
         boolean flag = false;
 
-        if (word.endsWith("eed")) {
-            String stem = word.substring(0, word.length() - 3);
-            if (measure(stem) > 0) {
-                word = word.substring(0, word.length() - 1); // Remove 'd'
+        if (endsWith("eed")) {
+            if (measure(k - 3) > 0) {
+                k--; // Remove 'd'
             }
-        } else if ((word.endsWith("ed") && containsVowel(word.substring(0, word.length() - 2)))) {
-            word = word.substring(0, word.length() - 2);
+        } else if (endsWith("ed") && containsVowel(k - 2)) {
+            k -= 2;
             flag = true;
-        } else if ((word.endsWith("ing") && containsVowel(word.substring(0, word.length() - 3)))) {
-            word = word.substring(0, word.length() - 3);
+        } else if (endsWith("ing") && containsVowel(k - 3)) {
+            k -= 3;
             flag = true;
         }
 
         if (flag) {
-            if (word.endsWith("at") || word.endsWith("bl") || word.endsWith("iz")) {
-                word = word + "e";
-            } else if (endsWithDoubleConsonant(word) && !word.endsWith("l") && !word.endsWith("s") && !word.endsWith("z")) {
-                word = word.substring(0, word.length() - 1);
-            } else if (measure(word) == 1 && cvc(word)) {
-                word = word + "e";
+            if (endsWith("at") || endsWith("bl") || endsWith("iz")) {
+                w[k++] = 'e';
+            } else if (endsWithDoubleConsonant(k) && !endsWith("l") && !endsWith("s") && !endsWith("z")) {
+                k--;
+            } else if (measure(k) == 1 && cvc(k)) {
+                w[k++] = 'e';
             }
         }
-        return word;
     }
 
     // Step 1c
-    private String step1c(String word) {
-        if (word.endsWith("y")) {
-            String stem = word.substring(0, word.length() - 1);
-            if (containsVowel(stem)) {
-                word = stem + "i";
-            }
+    private void step1c() {
+        if (endsWith("y") && containsVowel(k - 1)) {
+            w[k - 1] = 'i';
         }
-        return word;
     }
 
-    // Step 2
-    private String step2(String word) {
-        Map<String, String> suffixes = new LinkedHashMap<>();
-
-        suffixes.put("ational", "ate");
-        suffixes.put("tional", "tion");
-        suffixes.put("enci", "ence");
-        suffixes.put("anci", "ance");
-        suffixes.put("izer", "ize");
-        suffixes.put("abli", "able");
-        suffixes.put("alli", "al");
-        suffixes.put("entli", "ent");
-        suffixes.put("eli", "e");
-        suffixes.put("ousli", "ous");
-        suffixes.put("ization", "ize");
-        suffixes.put("ation", "ate");
-        suffixes.put("ator", "ate");
-        suffixes.put("alism", "al");
-        suffixes.put("iveness", "ive");
-        suffixes.put("fulness", "ful");
-        suffixes.put("ousness", "ous");
-        suffixes.put("aliti", "al");
-        suffixes.put("iviti", "ive");
-        suffixes.put("biliti", "ble");
-
-        for (Map.Entry<String, String> entry : suffixes.entrySet()) {
-            String suffix = entry.getKey();
-            String replacement = entry.getValue();
-
-            if (word.endsWith(suffix)) {
-                String stem = word.substring(0, word.length() - suffix.length());
+    // Steps 2 and 3: the first listed suffix whose stem has measure > 0 is replaced.
+    private void replaceSuffix(String[][] suffixes) {
+        for (String[] entry : suffixes) {
+            String suffix = entry[0];
+            if (endsWith(suffix)) {
+                int stem = k - suffix.length();
                 if (measure(stem) > 0) {
-                    word = stem + replacement;
-                    return word;
+                    String replacement = entry[1];
+                    replacement.getChars(0, replacement.length(), w, stem);
+                    k = stem + replacement.length();
+                    return;
                 }
             }
         }
-        return word;
-    }
-
-    // Step 3
-    private String step3(String word) {
-        Map<String, String> suffixes = new LinkedHashMap<>();
-
-        suffixes.put("icate", "ic");
-        suffixes.put("ative", "");
-        suffixes.put("alize", "al");
-        suffixes.put("iciti", "ic");
-        suffixes.put("ical", "ic");
-        suffixes.put("ful", "");
-        suffixes.put("ness", "");
-
-        for (Map.Entry<String, String> entry : suffixes.entrySet()) {
-            String suffix = entry.getKey();
-            String replacement = entry.getValue();
-
-            if (word.endsWith(suffix)) {
-                String stem = word.substring(0, word.length() - suffix.length());
-                if (measure(stem) > 0) {
-                    word = stem + replacement;
-                    return word;
-                }
-            }
-        }
-        return word;
     }
 
     // Step 4
-    private String step4(String word) {
-        String[] suffixes = {
-                "al", "ance", "ence", "er", "ic", "able", "ible",
-                "ant", "ement", "ment", "ent", "ion", "ou", "ism",
-                "ate", "iti", "ous", "ive", "ize"
-        };
-        for (String suffix : suffixes) {
-            if (word.endsWith(suffix)) {
-                String stem = word.substring(0, word.length() - suffix.length());
+    private void step4() {
+        for (String suffix : STEP4) {
+            if (endsWith(suffix)) {
+                int stem = k - suffix.length();
                 if (measure(stem) > 1) {
                     if (suffix.equals("ion")) {
-                        if (stem.endsWith("s") || stem.endsWith("t")) {
-                            word = stem;
+                        if (w[stem - 1] == 's' || w[stem - 1] == 't') {
+                            k = stem;
                         }
                     } else {
-                        word = stem;
+                        k = stem;
                     }
-                    return word;
+                    return;
                 }
             }
         }
-        return word;
     }
 
     // Step 5a
-    private String step5a(String word) {
-        if (word.endsWith("e")) {
-            String stem = word.substring(0, word.length() - 1);
-            int m = measure(stem);
-            if (m > 1 || (m == 1 && !cvc(stem))) {
-                word = stem;
+    private void step5a() {
+        if (endsWith("e")) {
+            int m = measure(k - 1);
+            if (m > 1 || (m == 1 && !cvc(k - 1))) {
+                k--;
             }
         }
-        return word;
     }
 
     // Step 5b
-    private String step5b(String word) {
-        if (measure(word) > 1 && endsWithDoubleConsonant(word) && word.endsWith("l")) {
-            word = word.substring(0, word.length() - 1);
+    private void step5b() {
+        if (measure(k) > 1 && endsWithDoubleConsonant(k) && endsWith("l")) {
+            k--;
         }
-        return word;
     }
 
-    // Helper methods
+    // Helper methods; `length` selects the prefix w[0..length) they look at
+
+    private boolean endsWith(String suffix) {
+        int n = suffix.length();
+        if (n > k) {
+            return false;
+        }
+        for (int i = 0, j = k - n; i < n; i++, j++) {
+            if (w[j] != suffix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
     // Measure the number of VC sequences
-    private int measure(String word) {
+    private int measure(int length) {
         int count = 0;
         int i = 0;
-        int length = word.length();
 
-        while (i < length && isConsonant(word, i)) {
+        while (i < length && isConsonant(i)) {
             i++;
         }
         while (i < length) {
-            while (i < length && !isConsonant(word, i)) {
+            while (i < length && !isConsonant(i)) {
                 i++;
             }
-            while (i < length && isConsonant(word, i)) {
+            while (i < length && isConsonant(i)) {
                 i++;
             }
             count++;
@@ -285,10 +271,10 @@ public class PorterStemmer {
         return count;
     }
 
-    // Check if the word contains a vowel
-    private boolean containsVowel(String word) {
-        for (int i = 0; i < word.length(); i++) {
-            if (!isConsonant(word, i)) {
+    // Check if the prefix contains a vowel
+    private boolean containsVowel(int length) {
+        for (int i = 0; i < length; i++) {
+            if (!isConsonant(i)) {
                 return true;
             }
         }
@@ -296,44 +282,29 @@ public class PorterStemmer {
     }
 
     // Check if a character at position i is a consonant
-    private boolean isConsonant(String word, int i) {
-        char c = word.charAt(i);
-        if ("aeiou".indexOf(c) != -1) {
+    private boolean isConsonant(int i) {
+        char c = w[i];
+        if (c == 'a' || c == 'e' || c == 'i' || c == 'o' || c == 'u') {
             return false;
         }
         if (c == 'y') {
-            if (i == 0) {
-                return true;
-            } else {
-                return !isConsonant(word, i - 1);
-            }
+            return i == 0 || !isConsonant(i - 1);
         }
         return true;
     }
 
-    // Check if the word ends with a double consonant
-    private boolean endsWithDoubleConsonant(String word) {
-        int length = word.length();
-        if (length >= 2) {
-            if (word.charAt(length - 1) == word.charAt(length - 2)) {
-                return isConsonant(word, length - 1);
-            }
-        }
-        return false;
+    // Check if the prefix ends with a double consonant
+    private boolean endsWithDoubleConsonant(int length) {
+        return length >= 2 && w[length - 1] == w[length - 2] && isConsonant(length - 1);
     }
 
-    // Check if the word ends with a consonant-vowel-consonant, where the final consonant is not w, x, or y
-    private boolean cvc(String word) {
-        int length = word.length();
+    // Check if the prefix ends with a consonant-vowel-consonant, where the final consonant is not w, x, or y
+    private boolean cvc(int length) {
         if (length >= 3) {
-            boolean c1 = isConsonant(word, length - 1);
-            boolean v = !isConsonant(word, length - 2);
-            boolean c2 = isConsonant(word, length - 3);
-            char lastChar = word.charAt(length - 1);
-            if (c1 && v && c2 && lastChar != 'w' && lastChar != 'x' && lastChar != 'y') {
-                return true;
-            }
+            char lastChar = w[length - 1];
+            return isConsonant(length - 1) && !isConsonant(length - 2) && isConsonant(length - 3)
+                    && lastChar != 'w' && lastChar != 'x' && lastChar != 'y';
         }
         return false;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,63 @@
+package com.myproject.mainProj;
+
+// **File:** PositionalMatch.java
+// **Purpose:** Phrase and proximity checks for one document, as linear merges over the sorted position lists of
+// its terms. Both return the matching position (for snippet placement) or -1.
+final class PositionalMatch {
+
+    private PositionalMatch() {
+    }
+
+    // Earliest start s such that every term j occurs at s + offsets[j]. offsets are increasing phrase slots;
+    // skipped slots (unindexed stopwords) simply have no term. Each list is walked forward once.
+    public static int phrase(int[][] positions, int[] offsets) {
+        int[] cursor = new int[positions.length];
+        int[] lead = positions[0];
+        for (int i = 0; i < lead.length; i++) {
+            int start = lead[i] - offsets[0];
+            boolean matched = true;
+            for (int j = 1; j < positions.length && matched; j++) {
+                int[] list = positions[j];
+                int want = start + offsets[j];
+                int c = cursor[j];
+                while (c < list.length && list[c] < want) {
+                    c++;
+                }
+                cursor[j] = c;
+                if (c == list.length) {
+                    return -1; // no later start can match either
+                }
+                matched = list[c] == want;
+            }
+            if (matched) {
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    // Earliest position of a pair of occurrences at most distance apart. With the same list on both sides
+    // (`rome NEAR/3 rome`) the pair must be two different occurrences.
+    public static int near(int[] a, int[] b, int distance) {
+        if (a == b) {
+            for (int i = 1; i < a.length; i++) {
+                if (a[i] - a[i - 1] <= distance) {
+                    return a[i - 1];
+                }
+            }
+            return -1;
+        }
+        int i = 0, j = 0;
+        while (i < a.length && j < b.length) {
+            if (Math.abs((long) a[i] - b[j]) <= distance) {
+                return Math.min(a[i], b[j]);
+            }
+            if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,182 @@
+package com.myproject.mainProj;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+// **File:** Postings.java
+// **Purpose:** Immutable postings list for one term: sorted int[] doc ids plus delta + variable-byte encoded positions.
+//
+// The position data uses the same layout as an IndexSegment postings entry, so a list can either own a small heap
+// buffer or point straight into a memory-mapped segment:
+//   int[docFreq + 1] block offsets (relative to the first block), then one position block per doc.
+class Postings {
+
+    private final int[] docIds;
+    private final ByteBuffer data;
+    private final int offsetsStart;
+    private final int blocksStart;
+
+    Postings(int[] docIds, ByteBuffer data, int offsetsStart) {
+        this.docIds = docIds;
+        this.data = data;
+        this.offsetsStart = offsetsStart;
+        this.blocksStart = offsetsStart + (docIds.length + 1) * 4;
+    }
+
+    // Builds a heap-backed list; positions[i] belongs to docIds[i], and both must already be sorted ascending.
+    public static Postings encode(int[] docIds, int[][] positions) {
+        ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+        int[] blockOffsets = new int[docIds.length + 1];
+        for (int i = 0; i < docIds.length; i++) {
+            blockOffsets[i] = blocks.size();
+            int previous = 0;
+            for (int position : positions[i]) {
+                VByte.write(blocks, position - previous);
+                previous = position;
+            }
+        }
+        blockOffsets[docIds.length] = blocks.size();
+
+        ByteBuffer data = ByteBuffer.allocate(blockOffsets.length * 4 + blocks.size());
+        for (int blockOffset : blockOffsets) {
+            data.putInt(blockOffset);
+        }
+        data.put(blocks.toByteArray());
+        return new Postings(docIds, data, 0);
+    }
+
+    // One list standing for several terms (a `prefix*` query word): every document containing any of them, with
+    // the positions of all of them merged.
+    public static Postings union(List<Postings> lists) {
+        PostingsCursor[] cursors = new PostingsCursor[lists.size()];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = lists.get(i).cursor();
+            cursors[i].nextDoc();
+        }
+        List<Integer> docIds = new ArrayList<>();
+        List<int[]> positions = new ArrayList<>();
+        while (true) {
+            int docId = PostingsCursor.NO_MORE_DOCS;
+            for (PostingsCursor cursor : cursors) {
+                docId = Math.min(docId, cursor.docId());
+            }
+            if (docId == PostingsCursor.NO_MORE_DOCS) {
+                break;
+            }
+            int[] merged = new int[0];
+            for (PostingsCursor cursor : cursors) {
+                if (cursor.docId() == docId) {
+                    int[] p = cursor.positions();
+                    int[] next = Arrays.copyOf(merged, merged.length + p.length);
+                    System.arraycopy(p, 0, next, merged.length, p.length);
+                    merged = next;
+                    cursor.nextDoc();
+                }
+            }
+            Arrays.sort(merged);
+            docIds.add(docId);
+            positions.add(merged);
+        }
+        return encode(docIds.stream().mapToInt(Integer::intValue).toArray(), positions.toArray(new int[0][]));
+    }
+
+    // This list without the documents set in deleted; the list itself when none of its documents are.
+    public Postings without(BitSet deleted) {
+        int kept = 0;
+        for (int docId : docIds) {
+            if (!deleted.get(docId)) {
+                kept++;
+            }
+        }
+        if (kept == docIds.length) {
+            return this;
+        }
+        int[] keptDocIds = new int[kept];
+        int[][] positions = new int[kept][];
+        for (int i = 0, k = 0; i < docIds.length; i++) {
+            if (!deleted.get(docIds[i])) {
+                keptDocIds[k] = docIds[i];
+                positions[k++] = positions(i);
+            }
+        }
+        return encode(keptDocIds, positions);
+    }
+
+    public int docFreq() {
+        return docIds.length;
+    }
+
+    public int docId(int i) {
+        return docIds[i];
+    }
+
+    // Index of docId in this list, or a negative value if the term does not occur in that document.
+    public int indexOf(int docId) {
+        return Arrays.binarySearch(docIds, docId);
+    }
+
+    public int freq(int i) {
+        // Every encoded position ends with exactly one byte that has the high bit set.
+        int end = blocksStart + data.getInt(offsetsStart + (i + 1) * 4);
+        int count = 0;
+        for (int offset = blocksStart + data.getInt(offsetsStart + i * 4); offset < end; offset++) {
+            if ((data.get(offset) & 0x80) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int[] positions(int i) {
+        int offset = blocksStart + data.getInt(offsetsStart + i * 4);
+        int end = blocksStart + data.getInt(offsetsStart + (i + 1) * 4);
+        int[] positions = new int[freq(i)];
+        int[] next = new int[1];
+        int position = 0;
+        for (int p = 0; offset < end; p++) {
+            position += VByte.read(data, offset, next);
+            offset = next[0];
+            positions[p] = position;
+        }
+        return positions;
+    }
+
+    public int firstPosition(int i) {
+        return VByte.read(data, blocksStart + data.getInt(offsetsStart + i * 4), new int[1]);
+    }
+
+    // Encoded size of document i's position block, and a raw copy of it; the encoding is self-contained
+    // (deltas start from 0), so ForwardIndex stores the same bytes.
+    int positionBlockLength(int i) {
+        return data.getInt(offsetsStart + (i + 1) * 4) - data.getInt(offsetsStart + i * 4);
+    }
+
+    void copyPositionBlock(int i, ByteBuffer target, int targetOffset) {
+        target.put(targetOffset, data, blocksStart + data.getInt(offsetsStart + i * 4), positionBlockLength(i));
+    }
+
+    // Heap held by this list; position data in a mapped segment is counted by the segment instead.
+    long heapBytes() {
+        long bytes = 32 + 16 + 4L * docIds.length;
+        return data.isDirect() ? bytes : bytes + 48 + data.capacity();
+    }
+
+    public PostingsCursor cursor() {
+        return new PostingsCursor(this);
+    }
+
+    // Writes the position part (block offsets and blocks) in IndexSegment layout.
+    void writePositionData(DataOutputStream out) throws IOException {
+        ByteBuffer slice = data.duplicate();
+        slice.limit(blocksStart + data.getInt(offsetsStart + docIds.length * 4)).position(offsetsStart);
+        byte[] bytes = new byte[slice.remaining()];
+        slice.get(bytes);
+        out.write(bytes);
+    }
+}
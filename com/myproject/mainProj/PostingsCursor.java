@@ -0,0 +1,75 @@
+package com.myproject.mainProj;
+
+// **File:** PostingsCursor.java
+// **Purpose:** Forward-only iterator over a Postings list (nextDoc / advance / positions).
+class PostingsCursor {
+
+    public static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    private final Postings postings;
+    private int index = -1;
+    private int docId = -1;
+
+    PostingsCursor(Postings postings) {
+        this.postings = postings;
+    }
+
+    public int docId() {
+        return docId;
+    }
+
+    public int docFreq() {
+        return postings.docFreq();
+    }
+
+    public int nextDoc() {
+        index++;
+        docId = index < postings.docFreq() ? postings.docId(index) : NO_MORE_DOCS;
+        return docId;
+    }
+
+    // Moves to the first doc >= target. Gallops forward from the current entry, then binary searches the
+    // bracketed range, so skipping over long runs costs O(log distance) instead of a linear walk.
+    public int advance(int target) {
+        int size = postings.docFreq();
+        if (docId >= target) {
+            return docId;
+        }
+        int low = index + 1;
+        if (low >= size) {
+            index = size;
+            return docId = NO_MORE_DOCS;
+        }
+        int step = 1;
+        int high = low;
+        while (high < size && postings.docId(high) < target) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        high = Math.min(high, size - 1);
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (postings.docId(mid) < target) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        index = low;
+        docId = index < size ? postings.docId(index) : NO_MORE_DOCS;
+        return docId;
+    }
+
+    public int freq() {
+        return postings.freq(index);
+    }
+
+    public int[] positions() {
+        return postings.positions(index);
+    }
+
+    public int firstPosition() {
+        return postings.firstPosition(index);
+    }
+}
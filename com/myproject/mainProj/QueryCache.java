@@ -0,0 +1,83 @@
+package com.myproject.mainProj;
+
+import java.util.Map;
+
+import com.myproject.utils.StatClasses.QueryResult;
+
+// **File:** QueryCache.java
+// **Purpose:** Caches finished query results under the canonical form of the query (stopword-filtered, stemmed,
+// sorted term ids plus the options that change the output), with a byte budget and a time-to-live.
+class QueryCache {
+
+    private static final class Entry {
+        final QueryResult result;
+        final long expiresAt;
+
+        Entry(QueryResult result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final LruCache<String, Entry> entries;
+    private final long ttlNanos;
+
+    QueryCache(long maxBytes, long ttlSeconds) {
+        this.entries = new LruCache<>(maxBytes, entry -> estimateBytes(entry.result));
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+    }
+
+    // Sorted term ids make "rome ancient" and "ancient rome" share an entry. Terms missing from the index only
+    // matter to AND queries (no result), so they are recorded as a flag rather than by name. Phrase and NEAR
+    // constraints arrive already written in term ids.
+    public static String key(int[] sortedTermIds, Iterable<String> sortedPrefixes,
+            Iterable<String> sortedConstraints, boolean missingTerm, int snippetSize, boolean disjunctive, int topK) {
+        StringBuilder key = new StringBuilder();
+        for (int termId : sortedTermIds) {
+            key.append(termId).append(' ');
+        }
+        for (String prefix : sortedPrefixes) {
+            key.append(prefix).append("* ");
+        }
+        for (String constraint : sortedConstraints) {
+            key.append(constraint).append(' ');
+        }
+        if (missingTerm) {
+            key.append('?');
+        }
+        return key.append('|').append(snippetSize).append(disjunctive ? "|OR|" : "|AND|").append(topK).toString();
+    }
+
+    // Returns a private copy, or null on a miss or an expired entry.
+    public QueryResult get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.expiresAt > 0) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.result.copy();
+    }
+
+    public void put(String key, QueryResult result) {
+        entries.put(key, new Entry(result.copy(), System.nanoTime() + ttlNanos));
+    }
+
+    public void invalidate() {
+        entries.clear();
+    }
+
+    public String stats() {
+        return entries.stats();
+    }
+
+    private static long estimateBytes(QueryResult result) {
+        long bytes = 256;
+        for (Map.Entry<Integer, String> e : result.docIdToSnippet.entrySet()) {
+            bytes += 96 + 2L * e.getValue().length();
+        }
+        return bytes + 64L * result.retrievedDocIds.size();
+    }
+}
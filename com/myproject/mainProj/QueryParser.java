@@ -0,0 +1,131 @@
+package com.myproject.mainProj;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// **File:** QueryParser.java
+// **Purpose:** Splits a free-text query into loose words, quoted phrases ("daily life") and proximity pairs
+// (`rome NEAR/3 empire`). Words are the Analyzer's tokens, exactly as the index has them (`don't` is `don`, `t`);
+// a trailing '*' is kept on loose words so prefixes still reach SearchProcessor. Stopwords and stemming are left
+// to the caller.
+final class QueryParser {
+
+    private static final Pattern NEAR = Pattern.compile("NEAR/(\\d+)");
+
+    private QueryParser() {
+    }
+
+    static final class Query {
+        final List<String> words = new ArrayList<>();
+        final List<List<String>> phrases = new ArrayList<>();
+        final List<Near> nears = new ArrayList<>();
+
+        boolean hasPositionalConstraints() {
+            return !phrases.isEmpty() || !nears.isEmpty();
+        }
+    }
+
+    // Two words at most `distance` positions apart, in either order.
+    static final class Near {
+        final String left;
+        final String right;
+        final int distance;
+
+        Near(String left, String right, int distance) {
+            this.left = left;
+            this.right = right;
+            this.distance = distance;
+        }
+    }
+
+    // An unterminated quote runs to the end of the query. `a NEAR/2 b NEAR/3 c` is the pairs (a, b) and (b, c);
+    // NEAR must be upper case (so the word "near" stays searchable) and only joins plain words, not prefixes.
+    public static Query parse(String raw) {
+        Query query = new Query();
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < raw.length()) {
+            int quote = raw.indexOf('"', i);
+            if (quote < 0) {
+                quote = raw.length();
+            }
+            addTokens(raw.substring(i, quote), tokens);
+            if (quote == raw.length()) {
+                break;
+            }
+            int close = raw.indexOf('"', quote + 1);
+            if (close < 0) {
+                close = raw.length();
+            }
+            List<String> phrase = Analyzer.tokens(raw.substring(quote + 1, close), false);
+            if (!phrase.isEmpty()) {
+                query.phrases.add(phrase);
+            }
+            tokens.add(null); // a phrase separates what is on either side of it
+            i = close + 1;
+        }
+
+        // Punctuation can split one whitespace token into several words; a NEAR takes the word nearest to it.
+        int n = tokens.size();
+        List<List<String>> words = new ArrayList<>();
+        for (String token : tokens) {
+            words.add(token == null ? null : Analyzer.tokens(token, false));
+        }
+        boolean[] nearKeyword = new boolean[n];
+        boolean[] firstTaken = new boolean[n];
+        boolean[] lastTaken = new boolean[n];
+        for (int t = 0; t < n; t++) {
+            Matcher near = tokens.get(t) == null ? null : NEAR.matcher(tokens.get(t));
+            if (near == null || !near.matches()) {
+                continue;
+            }
+            if (t > 0 && t + 1 < n && isOperand(tokens.get(t - 1), words.get(t - 1))
+                    && isOperand(tokens.get(t + 1), words.get(t + 1))) {
+                List<String> left = words.get(t - 1);
+                query.nears.add(new Near(left.get(left.size() - 1), words.get(t + 1).get(0),
+                        Integer.parseInt(near.group(1))));
+                nearKeyword[t] = lastTaken[t - 1] = firstTaken[t + 1] = true;
+            }
+        }
+        for (int t = 0; t < n; t++) {
+            List<String> tokenWords = words.get(t);
+            if (tokenWords == null || nearKeyword[t]) {
+                continue;
+            }
+            boolean prefix = tokens.get(t).endsWith("*");
+            int end = lastTaken[t] ? tokenWords.size() - 1 : tokenWords.size();
+            for (int w = firstTaken[t] ? 1 : 0; w < end; w++) {
+                boolean last = w == tokenWords.size() - 1;
+                query.words.add(prefix && last ? tokenWords.get(w) + "*" : tokenWords.get(w));
+            }
+        }
+        return query;
+    }
+
+    // Query files and `-SEARCH=QUERY "..."` wrap the whole argument in quotes; that pair is argument syntax, not
+    // a phrase. It is only stripped when nothing inside is quoted or the inside is itself fully quoted, so
+    // `"a b" c d` stays a phrase query and `""a b""` searches for the single phrase.
+    public static String unquoteArgument(String argument) {
+        String trimmed = argument.trim();
+        if (trimmed.length() < 2 || trimmed.charAt(0) != '"' || trimmed.charAt(trimmed.length() - 1) != '"') {
+            return argument;
+        }
+        String inner = trimmed.substring(1, trimmed.length() - 1);
+        boolean wrapped = inner.length() >= 2 && inner.startsWith("\"") && inner.endsWith("\"");
+        return inner.indexOf('"') < 0 || wrapped ? inner : argument;
+    }
+
+    private static void addTokens(String text, List<String> tokens) {
+        for (String token : text.trim().split("\\s+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+    }
+
+    private static boolean isOperand(String token, List<String> words) {
+        return token != null && !token.endsWith("*") && !NEAR.matcher(token).matches() && !words.isEmpty();
+    }
+}
@@ -0,0 +1,173 @@
+package com.myproject.mainProj;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// **File:** ReloadingContext.java
+// **Purpose:** The warm process's current SearchContext, swappable while queries run. reload() loads a complete
+// context from disk off to the side and publishes it with one reference write. A request reads current() once and
+// uses that snapshot to the end, so in-flight queries finish on the index they started with. The query and snippet
+// caches belong to the snapshot, which means nothing cached for the old index is ever served for the new one.
+class ReloadingContext {
+
+    // Files whose change means the loaded index is stale; a rebuild or `Indexer -ADD/-DELETE` touches one of them.
+    private static final List<String> WATCHED = Arrays.asList("inverted_index.txt", IndexSegment.FILE_NAME,
+            DocumentStore.FILE_NAME, "document_id_map.txt", "generated_stoplist.txt", StemCache.DICTIONARY_FILE,
+            "segments.txt", "tombstones.bin");
+
+    private final String baseDir;
+    private final boolean doStemming;
+    private final long snippetCacheBytes;
+    private final long snippetDeadlineMillis;
+    private final long queryCacheBytes;
+    private final long queryCacheTtlSeconds;
+    // Shared by every snapshot's SnippetGenerator, so a swap never shuts down threads a query is waiting on.
+    private final ExecutorService snippetExecutor;
+    private final AtomicReference<SearchContext> current = new AtomicReference<>();
+
+    ReloadingContext(String baseDir, boolean doStemming, long snippetCacheBytes, int snippetThreads,
+            long snippetDeadlineMillis, long queryCacheBytes, long queryCacheTtlSeconds) {
+        this.baseDir = baseDir;
+        this.doStemming = doStemming;
+        this.snippetCacheBytes = snippetCacheBytes;
+        this.snippetDeadlineMillis = snippetDeadlineMillis;
+        this.queryCacheBytes = queryCacheBytes;
+        this.queryCacheTtlSeconds = queryCacheTtlSeconds;
+        this.snippetExecutor = SnippetGenerator.newExecutor(snippetThreads);
+        current.set(load());
+    }
+
+    public SearchContext current() {
+        return current.get();
+    }
+
+    // Loads the index as it is on disk now and swaps it in. The old snapshot stays live if loading fails or comes
+    // back empty (a rebuild caught half-written); reloads are serialised so two never build at once.
+    public synchronized String reload() throws IOException {
+        long start = System.nanoTime();
+        current.get().stems.flush(); // the new snapshot starts from the journal
+        SearchContext next;
+        try {
+            next = load();
+        } catch (RuntimeException e) {
+            throw new IOException("Reload failed, keeping the current index: " + e.getMessage(), e);
+        }
+        if (next.invertedIndex.docCount() == 0 && current.get().invertedIndex.docCount() > 0) {
+            throw new IOException("Reload found no documents in " + baseDir + ", keeping the current index");
+        }
+        current.set(next);
+        return String.format("Reloaded index: %d docs, %d terms in %d ms", next.invertedIndex.docCount(),
+                next.invertedIndex.termCount(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    // Reloads whenever one of the index files changes, once writes have been quiet for quietMillis, so the several
+    // files of one rebuild or ingest produce a single reload. Runs on a daemon thread.
+    public void watch(long quietMillis) throws IOException {
+        WatchService watcher = FileSystems.getDefault().newWatchService();
+        Path dir = Paths.get(baseDir);
+        Path segmentsDir = dir.resolve(SegmentSet.DIR_NAME);
+        register(watcher, dir);
+        if (Files.isDirectory(segmentsDir)) {
+            register(watcher, segmentsDir);
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                while (true) {
+                    WatchKey key = watcher.take();
+                    boolean stale = false;
+                    while (key != null) {
+                        stale |= drain(key, watcher, segmentsDir);
+                        key = watcher.poll(quietMillis, TimeUnit.MILLISECONDS);
+                    }
+                    if (stale) {
+                        try {
+                            System.err.println(reload());
+                        } catch (IOException e) {
+                            System.err.println(e.getMessage());
+                        }
+                    }
+                }
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                // shutting down
+            }
+        }, "index-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private SearchContext load() {
+        HashSet<String> stoplist = DataLoader.loadStoplist(Paths.get(baseDir, "generated_stoplist.txt").toString());
+        StemCache stems = StemCache.open(baseDir);
+
+        // Snippets read documents by path, so the map's names are resolved against baseDir.
+        Map<Integer, String> documentIdToFilename = new HashMap<>();
+        for (Map.Entry<Integer, String> e :
+                DataLoader.loadDocumentIdMap(Paths.get(baseDir, "document_id_map.txt").toString()).entrySet()) {
+            documentIdToFilename.put(e.getKey(), Paths.get(baseDir).resolve(e.getValue()).toString());
+        }
+
+        // Prefer the compiled binary segment (see -COMPILE_INDEX); fall back to parsing the text index. A segment
+        // compiled from an older inverted_index.txt is skipped, so a reload after a text rebuild (which the
+        // watcher sees as a change to inverted_index.txt) serves the rebuilt index, not the stale segment.
+        InvertedIndex invertedIndex = DataLoader.loadInvertedIndexSegment(
+                Paths.get(baseDir, IndexSegment.FILE_NAME).toString(), doStemming);
+        if (invertedIndex == null) {
+            invertedIndex = DataLoader.loadInvertedIndex(
+                    Paths.get(baseDir, "inverted_index.txt").toString(), doStemming, stems);
+        }
+        invertedIndex = DataLoader.withSegments(baseDir, invertedIndex, doStemming, stems);
+
+        SnippetGenerator snippetGenerator = new SnippetGenerator(documentIdToFilename,
+                DataLoader.loadDocumentStore(Paths.get(baseDir, DocumentStore.FILE_NAME).toString()),
+                snippetCacheBytes, snippetExecutor, snippetDeadlineMillis);
+        return new SearchContext(invertedIndex, documentIdToFilename, stoplist, stems, doStemming,
+                snippetGenerator, new QueryCache(queryCacheBytes, queryCacheTtlSeconds));
+    }
+
+    private static void register(WatchService watcher, Path dir) throws IOException {
+        dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    // True if the key reported a change to an index file. A segments directory created after startup (the first
+    // `Indexer -ADD`) is registered as soon as it appears.
+    private static boolean drain(WatchKey key, WatchService watcher, Path segmentsDir) {
+        boolean stale = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                stale = true;
+                continue;
+            }
+            Path name = (Path) event.context();
+            Path changed = ((Path) key.watchable()).resolve(name);
+            if (changed.equals(segmentsDir) && event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+                try {
+                    register(watcher, segmentsDir);
+                } catch (IOException e) {
+                    System.err.println("Cannot watch " + segmentsDir + ": " + e.getMessage());
+                }
+                stale = true;
+            } else if (WATCHED.contains(name.toString())) {
+                stale = true;
+            }
+        }
+        key.reset();
+        return stale;
+    }
+}
@@ -0,0 +1,42 @@
+package com.myproject.mainProj;
+
+import java.util.HashSet;
+import java.util.Map;
+
+// **File:** SearchContext.java
+// **Purpose:** Everything a search needs, loaded once and shared by every query: the index, the document names,
+// the query analyzer (stoplist and stemming), the snippet generator and the result cache that is only valid for this index.
+// Nothing is replaced after construction, so a context is a consistent snapshot (see ReloadingContext).
+class SearchContext {
+
+    public final InvertedIndex invertedIndex;
+    public final Map<Integer, String> documentIdToFilename;
+    public final Analyzer analyzer;
+    public final StemCache stems;
+    public final boolean doStemming;
+    public final SnippetGenerator snippetGenerator;
+    public final QueryCache queryCache;
+
+    public SearchContext(InvertedIndex invertedIndex, Map<Integer, String> documentIdToFilename,
+            HashSet<String> stoplist, StemCache stems, boolean doStemming,
+            SnippetGenerator snippetGenerator, QueryCache queryCache) {
+        this.invertedIndex = invertedIndex;
+        this.documentIdToFilename = documentIdToFilename;
+        this.stems = stems;
+        // Indexed stems share the term dictionary's string instead of each entry holding its own copy
+        stems.shareStrings(invertedIndex.dictionary());
+        this.doStemming = doStemming;
+        this.analyzer = new Analyzer(stoplist, doStemming ? stems : null);
+        this.snippetGenerator = snippetGenerator;
+        this.queryCache = queryCache;
+    }
+
+    // Dictionary id of the word after stemming, or -1 if the index does not contain it.
+    public int termId(String word) {
+        return invertedIndex.termIndex(stem(word));
+    }
+
+    public String stem(String word) {
+        return analyzer.stem(word);
+    }
+}
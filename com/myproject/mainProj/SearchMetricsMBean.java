@@ -0,0 +1,34 @@
+package com.myproject.mainProj;
+
+// **File:** SearchMetricsMBean.java
+// **Purpose:** JMX view of the process-wide search counters (registered by Metrics as
+// com.myproject.mainProj:type=Search). Turning Enabled off stops all recording; reset() zeroes every counter
+// and stage histogram.
+public interface SearchMetricsMBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getQueries();
+
+    long getPostingsScanned();
+
+    long getMatches();
+
+    long getDocumentsRead();
+
+    long getDocumentBytesRead();
+
+    long getStoreSnippets();
+
+    double getQueryCacheHitRate();
+
+    double getSnippetCacheHitRate();
+
+    double getStemCacheHitRate();
+
+    String report();
+
+    void reset();
+}
@@ -4,21 +4,22 @@ import java.util.List;
 import java.util.Map;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
-import java.util.Set;
+import java.util.TreeSet;
 
+import com.myproject.utils.StatClasses.QueryProfile;
 import com.myproject.utils.StatClasses.QueryResult;
 
 // **File:** SearchProcessor.java
 // **Purpose:** Contains methods for searching by word, document, and query.
 class SearchProcessor {
 
-    public static QueryResult searchByWord(String word, boolean doStemming,
-            HashMap<String, HashMap<Integer, List<Integer>>> invertedIndex, Map<Integer, String> documentIdToFilename,
-            int snippetSize, Map<String, String> stemmingDictionary) throws IOException {
+    // A `prefix*` word matches through at most this many completions (the most frequent ones).
+    static final int MAX_PREFIX_EXPANSIONS = 64;
+
+    public static QueryResult searchByWord(String word, SearchContext context, int snippetSize) throws IOException {
+        long start = Metrics.now();
         QueryResult result = new QueryResult();
 
         // If stemming is enabled, stem
@@ -28,46 +29,47 @@ class SearchProcessor {
 
 
         // If stemming is enabled, stem the word
-        String stemmedWord = word;
-        if (doStemming) {
-            stemmedWord = stemmingDictionary.containsKey(word) ? stemmingDictionary.get(word) : PorterStemmer.stem(word);
-        }
+        String stemmedWord = context.stem(word);
         result.queryString = "Search by word: " + word;
 
-        if (invertedIndex.containsKey(stemmedWord)) {
-            for (Map.Entry<Integer, List<Integer>> entry : invertedIndex.get(stemmedWord).entrySet()) {
-                int docId = entry.getKey();
-                result.retrievedDocIds.add(docId);
+        Postings postings = context.invertedIndex.postings(stemmedWord);
+        if (postings != null) {
+            Metrics.POSTINGS_SCANNED.add(postings.docFreq());
+            int[] docIds = new int[postings.docFreq()];
+            int[] earliestPositions = new int[docIds.length];
+            PostingsCursor cursor = postings.cursor();
+            for (int i = 0; cursor.nextDoc() != PostingsCursor.NO_MORE_DOCS; i++) {
+                docIds[i] = cursor.docId();
+                // Positions are stored sorted, so the first one is the earliest
+                earliestPositions[i] = cursor.firstPosition();
+            }
 
-                // Generate snippet
-                List<Integer> positions = entry.getValue();
-                int earliestPosition = Collections.min(positions);
-                String snippet = SnippetGenerator.generateSnippet(documentIdToFilename, docId, earliestPosition, snippetSize);
-                result.docIdToSnippet.put(docId, "Snippet: " + (snippet != null ? snippet : "Unable to generate snippet."));
+            String[] snippets = context.snippetGenerator.generateSnippets(docIds, earliestPositions, snippetSize);
+            for (int i = 0; i < docIds.length; i++) {
+                result.retrievedDocIds.add(docIds[i]);
+                result.docIdToSnippet.put(docIds[i], "Snippet: " + (snippets[i] != null ? snippets[i] : "Unable to generate snippet."));
             }
         } else {
             System.out.println("Word '" + word + "' not found in the index.");
         }
+        Metrics.WORD.since(start);
         return result;
     }
 
-    public static QueryResult searchByDocument(int docId, HashMap<String, HashMap<Integer, List<Integer>>> invertedIndex)
+    public static QueryResult searchByDocument(int docId, InvertedIndex invertedIndex)
             throws IOException {
         QueryResult result = new QueryResult();
         result.queryString = "Document ID: " + docId;
-        boolean found = false;
         Map<String, Integer> wordFreqMap = new LinkedHashMap<>();
 
-        for (Map.Entry<String, HashMap<Integer, List<Integer>>> entry : invertedIndex.entrySet()) {
-            String word = entry.getKey();
-            if (entry.getValue().containsKey(docId)) {
-                int frequency = entry.getValue().get(docId).size();
-                wordFreqMap.put(word, frequency);
-                found = true;
-            }
+        // Only this document's own entries are read; term ids ascend, so words come out in dictionary order.
+        ForwardIndex forwardIndex = invertedIndex.forwardIndex();
+        int termCount = forwardIndex.termCount(docId);
+        for (int k = 0; k < termCount; k++) {
+            wordFreqMap.put(invertedIndex.term(forwardIndex.termId(docId, k)), forwardIndex.freq(docId, k));
         }
 
-        if (!found) {
+        if (termCount == 0) {
             System.out.println("No words found for Document ID " + docId + ".");
         } else {
             result.retrievedDocIds.add(docId);
@@ -76,61 +78,550 @@ class SearchProcessor {
         return result;
     }
 
-    public static QueryResult searchByQuery(String query, boolean doStemming,
-            HashMap<String, HashMap<Integer, List<Integer>>> invertedIndex, HashSet<String> stoplist,
-            Map<Integer, String> documentIdToFilename, int snippetSize, Map<String, String> stemmingDictionary) throws IOException {
+    public static QueryResult suggest(String prefix, InvertedIndex invertedIndex, int limit) {
+        QueryResult result = new QueryResult();
+        prefix = prefix.trim().toLowerCase();
+        result.queryString = "Suggestions for: " + prefix;
+        Autocomplete autocomplete = invertedIndex.autocomplete();
+        for (int termId : autocomplete.suggest(prefix, limit)) {
+            result.suggestions.put(invertedIndex.term(termId), autocomplete.docFreq(termId));
+        }
+        return result;
+    }
+
+    public static QueryResult searchByQuery(String query, SearchContext context, int snippetSize,
+            boolean disjunctive, int topK) throws IOException {
+        return searchByQuery(query, context, snippetSize, disjunctive, topK, false);
+    }
+
+    // With profile, the result carries a QueryProfile: document frequencies, evaluation order, candidates left
+    // after each intersection step, where the snippets came from and the time spent in each phase.
+    public static QueryResult searchByQuery(String query, SearchContext context, int snippetSize,
+            boolean disjunctive, int topK, boolean profile) throws IOException {
+        long start = Metrics.now();
+        Metrics.QUERIES.increment();
+        QueryProfile queryProfile = profile ? new QueryProfile() : null;
+        long profileStart = profile ? System.nanoTime() : 0;
+        QueryResult result = searchQuery(query, context, snippetSize, disjunctive, topK, start, queryProfile);
+        Metrics.QUERY.since(start);
+        if (profile) {
+            queryProfile.phaseMicros.put("total", (System.nanoTime() - profileStart) / 1000);
+            result.profile = queryProfile;
+        }
+        return result;
+    }
+
+    // searchByQuery without the end-to-end timing; lap is the Metrics.now() reading the stages are timed from and
+    // profile (null when not profiling) collects the breakdown.
+    private static QueryResult searchQuery(String query, SearchContext context, int snippetSize,
+            boolean disjunctive, int topK, long lap, QueryProfile profile) throws IOException {
+        long phase = profile != null ? System.nanoTime() : 0;
+        InvertedIndex invertedIndex = context.invertedIndex;
         QueryResult result = new QueryResult();
-        query = query.replaceAll("[^a-zA-Z0-9\\s]", "").trim();
-        query = query.replaceAll("\\s+", " ");
-        result.queryString = "Query: " + query;
+        QueryParser.Query parsed = QueryParser.parse(query);
+        result.queryString = "Query: " + displayQuery(query);
 
-        String[] words = query.split("\\s+");
+        // A trailing '*' makes a word a prefix (`comput*`); prefixes are neither stopword-filtered nor stemmed.
         List<String> filteredWords = new ArrayList<>();
-        for (String word : words) {
-            word = word.toLowerCase();
-            if (!stoplist.contains(word)) {
+        TreeSet<String> prefixes = new TreeSet<>();
+        for (String word : parsed.words) {
+            if (word.endsWith("*")) {
+                String prefix = word.replace("*", "");
+                if (!prefix.isEmpty()) {
+                    prefixes.add(prefix);
+                }
+                continue;
+            }
+            word = word.replace("*", "");
+            if (!context.analyzer.isStopword(word)) {
                 filteredWords.add(word);
+            } else if (profile != null) {
+                profile.stopwords.add(word);
             }
         }
 
-        if (filteredWords.isEmpty()) {
+        if (filteredWords.isEmpty() && prefixes.isEmpty() && !parsed.hasPositionalConstraints()) {
             System.out.println("All query words are stopwords.");
+            if (profile != null) {
+                profile.strategy = "none";
+            }
             return result;
         }
 
-        Set<String> queryTerms = new HashSet<>();
+        // Each word resolves to its dictionary id once; the rest of the query works on sorted, distinct ids.
+        int[] termIds = new int[filteredWords.size()];
+        int termCount = 0;
+        boolean missingTerm = false;
         for (String word : filteredWords) {
-            String term = (doStemming) ? (stemmingDictionary.containsKey(word) ? stemmingDictionary.get(word) : PorterStemmer.stem(word)) : word;
-            queryTerms.add(term);
+            int termId = context.termId(word);
+            if (termId >= 0) {
+                termIds[termCount++] = termId;
+            } else {
+                missingTerm = true;
+            }
+            if (profile != null) {
+                profile.docFreqs.put(word, termId >= 0 ? invertedIndex.docFreq(termId) : 0);
+            }
+        }
+        termIds = distinct(termIds, termCount);
+        // Each prefix stands for its most frequent completions; one with none counts as a missing term.
+        List<int[]> prefixTermIds = new ArrayList<>();
+        List<String> prefixLabels = new ArrayList<>();
+        for (String prefix : prefixes) {
+            int[] expansion = invertedIndex.autocomplete().expand(prefix, MAX_PREFIX_EXPANSIONS);
+            if (expansion.length > 0) {
+                prefixTermIds.add(expansion);
+                prefixLabels.add(prefix + "*");
+            } else {
+                missingTerm = true;
+            }
+            if (profile != null) {
+                int docFreq = 0; // summed over the completions, so documents with several count more than once
+                for (int termId : expansion) {
+                    docFreq += invertedIndex.docFreq(termId);
+                }
+                profile.docFreqs.put(prefix + "*", docFreq);
+            }
+        }
+        if (profile != null) {
+            for (List<String> phrase : parsed.phrases) {
+                profileDocFreqs(profile, phrase, context);
+            }
+            for (QueryParser.Near near : parsed.nears) {
+                profileDocFreqs(profile, Arrays.asList(near.left, near.right), context);
+            }
+        }
+        // Phrases and NEAR pairs are required under AND and OR alike, so one that cannot match empties the result.
+        List<PositionalConstraint> constraints = new ArrayList<>();
+        boolean unmatchable = false;
+        for (List<String> phrase : parsed.phrases) {
+            PositionalConstraint constraint = PositionalConstraint.phrase(phrase, context);
+            if (constraint == null) {
+                unmatchable = true;
+            } else if (constraint.termIds.length > 0) {
+                constraints.add(constraint);
+            }
+        }
+        for (QueryParser.Near near : parsed.nears) {
+            int left = context.termId(near.left);
+            int right = context.termId(near.right);
+            if (left < 0 || right < 0) {
+                unmatchable = true;
+            } else {
+                constraints.add(PositionalConstraint.near(left, right, near.distance));
+            }
+        }
+        // AND needs every term to be indexed; OR simply ignores the unknown ones.
+        boolean noMatch = unmatchable || (missingTerm && !disjunctive);
+        if (noMatch) {
+            termIds = new int[0];
+            prefixTermIds.clear();
+            prefixLabels.clear();
+            constraints.clear();
         }
 
-        Set<Integer> resultDocIds = null;
-        for (String term : queryTerms) {
-            if (!invertedIndex.containsKey(term)) {
-                resultDocIds = new HashSet<>();
-                break;
+        // Repeat queries are answered from the cache without touching postings or documents
+        TreeSet<String> constraintKeys = new TreeSet<>();
+        for (PositionalConstraint constraint : constraints) {
+            constraintKeys.add(constraint.key());
+        }
+        String cacheKey = QueryCache.key(termIds, prefixes, constraintKeys, noMatch, snippetSize, disjunctive, topK);
+        QueryResult cached = context.queryCache.get(cacheKey);
+        lap = Metrics.ANALYZE.since(lap);
+        phase = phase(profile, "analyze", phase);
+        if (cached != null) {
+            Metrics.QUERY_CACHE_HITS.increment();
+            if (profile != null) {
+                profile.strategy = "cache";
             }
-            Set<Integer> docIds = invertedIndex.get(term).keySet();
-            if (resultDocIds == null) {
-                resultDocIds = new HashSet<>(docIds);
+            cached.queryString = result.queryString;
+            return cached;
+        }
+        Metrics.QUERY_CACHE_MISSES.increment();
+        if (Metrics.enabled()) {
+            Metrics.POSTINGS_SCANNED.add(postingsToScan(invertedIndex, termIds, prefixTermIds, constraints));
+        }
+
+        // Rank with BM25, keeping only the topK best hits (all hits when topK <= 0)
+        TopKCollector collector = new TopKCollector(topK);
+        if (profile != null) {
+            profile.strategy = "none";
+        }
+        if (!constraints.isEmpty()) {
+            collectConstrained(invertedIndex, termIds, prefixTermIds, prefixLabels, constraints, disjunctive,
+                    collector, profile);
+        } else if (termIds.length > 0 || !prefixTermIds.isEmpty()) {
+            if (disjunctive) {
+                // Under OR a prefix's completions are simply more optional terms.
+                for (int[] expansion : prefixTermIds) {
+                    termIds = mergeDistinct(termIds, expansion);
+                }
+                if (profile != null) {
+                    profile.strategy = "wand";
+                    describeDisjunction(invertedIndex, termIds, profile);
+                }
+                new Disjunction(invertedIndex, termIds).collect(collector);
             } else {
-                resultDocIds.retainAll(docIds);
+                List<Postings> termPostings = new ArrayList<>();
+                for (int termId : termIds) {
+                    termPostings.add(invertedIndex.postings(termId));
+                }
+                addPrefixUnions(invertedIndex, prefixTermIds, termPostings);
+                if (profile != null) {
+                    profile.strategy = "conjunction";
+                    describeConjunction(labels(invertedIndex, termIds, prefixLabels), termPostings, profile);
+                }
+                Conjunction conjunction = new Conjunction(termPostings);
+                Bm25 bm25 = invertedIndex.bm25();
+                while (conjunction.nextDoc() != PostingsCursor.NO_MORE_DOCS) {
+                    collector.collect(conjunction.docId(), conjunction.score(bm25), conjunction.firstPosition());
+                }
             }
-            if (resultDocIds.isEmpty()) {
-                break;
+        }
+
+        List<TopKCollector.ScoredDoc> hits = collector.results();
+        Metrics.MATCHES.add(collector.collected());
+        lap = Metrics.MATCH.since(lap);
+        phase = phase(profile, "match", phase);
+        SnippetGenerator.Sources sources = profile != null ? new SnippetGenerator.Sources() : null;
+        int[] docIds = new int[hits.size()];
+        int[] earliestPositions = new int[hits.size()];
+        for (int i = 0; i < hits.size(); i++) {
+            docIds[i] = hits.get(i).docId;
+            earliestPositions[i] = hits.get(i).firstPosition;
+        }
+        String[] snippets = context.snippetGenerator.generateSnippets(docIds, earliestPositions, snippetSize,
+                sources);
+        Metrics.SNIPPETS.since(lap);
+        if (profile != null) {
+            phase(profile, "snippets", phase);
+            profile.matches = collector.collected();
+            profile.documentsRead = sources.files.get();
+            profile.storeSnippets = sources.store.get();
+            profile.cachedSnippets = sources.cache.get();
+            profile.cachedDocuments = sources.documents.get();
+        }
+        boolean complete = true;
+        for (int i = 0; i < hits.size(); i++) {
+            result.retrievedDocIds.add(docIds[i]);
+            result.docIdToScore.put(docIds[i], hits.get(i).score);
+            result.docIdToSnippet.put(docIds[i], "Snippet: " + (snippets[i] != null ? snippets[i] : "Unable to generate snippet."));
+            complete &= snippets[i] != SnippetGenerator.TIMED_OUT;
+        }
+
+        if (result.retrievedDocIds.isEmpty()) {
+            if (parsed.hasPositionalConstraints()) {
+                System.out.println("No documents match the phrases and NEAR conditions in the query.");
+            } else {
+                System.out.println(disjunctive ? "No documents contain any of the words in the query."
+                        : "No documents contain all the words in the query.");
             }
         }
+        // Results with timed-out snippets are not cached, so the next identical query can fill them in
+        if (complete) {
+            context.queryCache.put(cacheKey, result);
+        }
 
-        if (resultDocIds != null && !resultDocIds.isEmpty()) {
-            for (Integer docId : resultDocIds) {
-                result.retrievedDocIds.add(docId);
-                String snippet = SnippetGenerator.generateSnippetForQuery(invertedIndex, documentIdToFilename, docId, queryTerms, snippetSize);
-                result.docIdToSnippet.put(docId, "Snippet: " + (snippet != null ? snippet : "Unable to generate snippet."));
+        return result;
+    }
+
+    // Total document frequency of the distinct lists the query evaluates (loose words, completions, phrase terms).
+    private static long postingsToScan(InvertedIndex invertedIndex, int[] termIds, List<int[]> prefixTermIds,
+            List<PositionalConstraint> constraints) {
+        int[] ids = termIds;
+        for (int[] expansion : prefixTermIds) {
+            ids = mergeDistinct(ids, expansion);
+        }
+        for (PositionalConstraint constraint : constraints) {
+            int[] constrained = constraint.termIds.clone();
+            Arrays.sort(constrained);
+            ids = mergeDistinct(ids, constrained);
+        }
+        long postings = 0;
+        for (int termId : ids) {
+            postings += invertedIndex.docFreq(termId);
+        }
+        return postings;
+    }
+
+    // Under AND each prefix must match through at least one completion: the union acts as one term.
+    private static void addPrefixUnions(InvertedIndex invertedIndex, List<int[]> prefixTermIds,
+            List<Postings> termPostings) {
+        for (int[] expansion : prefixTermIds) {
+            List<Postings> completions = new ArrayList<>();
+            for (int termId : expansion) {
+                completions.add(invertedIndex.postings(termId));
             }
+            termPostings.add(completions.size() == 1 ? completions.get(0) : Postings.union(completions));
+        }
+    }
+
+    // Phrase / NEAR evaluation: a document-level conjunction over every constrained term (plus, under AND, the
+    // loose words and prefixes) finds candidates cheaply; only those have their positions decoded and checked.
+    // Under OR the loose words are optional and just add their BM25 score where they occur.
+    private static void collectConstrained(InvertedIndex invertedIndex, int[] termIds, List<int[]> prefixTermIds,
+            List<String> prefixLabels, List<PositionalConstraint> constraints, boolean disjunctive,
+            TopKCollector collector, QueryProfile profile) {
+        int[] constrainedIds = new int[0];
+        for (PositionalConstraint constraint : constraints) {
+            int[] ids = constraint.termIds.clone();
+            Arrays.sort(ids);
+            constrainedIds = mergeDistinct(constrainedIds, ids);
+        }
+        int[] requiredIds = constrainedIds;
+        int[] optionalIds = new int[0];
+        if (disjunctive) {
+            for (int[] expansion : prefixTermIds) {
+                termIds = mergeDistinct(termIds, expansion);
+            }
+            optionalIds = subtract(termIds, constrainedIds);
         } else {
-            System.out.println("No documents contain all the words in the query.");
+            requiredIds = mergeDistinct(constrainedIds, termIds);
         }
 
-        return result;
+        List<Postings> termPostings = new ArrayList<>();
+        for (int termId : requiredIds) {
+            termPostings.add(invertedIndex.postings(termId));
+        }
+        if (!disjunctive) {
+            addPrefixUnions(invertedIndex, prefixTermIds, termPostings);
+        }
+        if (profile != null) {
+            profile.strategy = "positional";
+            describeConjunction(labels(invertedIndex, requiredIds, disjunctive ? new ArrayList<>() : prefixLabels),
+                    termPostings, profile);
+        }
+        PostingsCursor[] optional = new PostingsCursor[optionalIds.length];
+        for (int i = 0; i < optional.length; i++) {
+            optional[i] = invertedIndex.postings(optionalIds[i]).cursor();
+        }
+
+        Conjunction conjunction = new Conjunction(termPostings);
+        Bm25 bm25 = invertedIndex.bm25();
+        int[][] positions = new int[requiredIds.length][];
+        candidates:
+        while (conjunction.nextDoc() != PostingsCursor.NO_MORE_DOCS) {
+            int docId = conjunction.docId();
+            Arrays.fill(positions, null); // decoded on demand, once per term and document
+            int matchPosition = Integer.MAX_VALUE;
+            for (PositionalConstraint constraint : constraints) {
+                int[][] lists = new int[constraint.termIds.length][];
+                for (int j = 0; j < lists.length; j++) {
+                    int slot = Arrays.binarySearch(requiredIds, constraint.termIds[j]);
+                    if (positions[slot] == null) {
+                        positions[slot] = conjunction.cursor(slot).positions();
+                    }
+                    lists[j] = positions[slot];
+                }
+                int position = constraint.match(lists);
+                if (position < 0) {
+                    continue candidates;
+                }
+                matchPosition = Math.min(matchPosition, position);
+            }
+            double score = conjunction.score(bm25);
+            for (PostingsCursor cursor : optional) {
+                if (cursor.docId() < docId) {
+                    cursor.advance(docId);
+                }
+                if (cursor.docId() == docId) {
+                    score += bm25.score(cursor);
+                }
+            }
+            collector.collect(docId, score, matchPosition);
+        }
+        if (profile != null) {
+            profile.evaluationOrder.add("positions");
+            profile.candidates.add(collector.collected());
+        }
+    }
+
+    private static void profileDocFreqs(QueryProfile profile, List<String> words, SearchContext context) {
+        for (String word : words) {
+            int termId = context.termId(word);
+            profile.docFreqs.put(word, termId >= 0 ? context.invertedIndex.docFreq(termId) : 0);
+        }
+    }
+
+    // Elapsed microseconds since start as the profile's named phase; returns the new start (0 when not profiling).
+    private static long phase(QueryProfile profile, String name, long start) {
+        if (profile == null) {
+            return 0;
+        }
+        long now = System.nanoTime();
+        profile.phaseMicros.put(name, (now - start) / 1000);
+        return now;
+    }
+
+    // Display names of the lists a conjunction is built from: the terms, then one per prefix union.
+    private static List<String> labels(InvertedIndex invertedIndex, int[] termIds, List<String> prefixLabels) {
+        List<String> labels = new ArrayList<>();
+        for (int termId : termIds) {
+            labels.add(invertedIndex.term(termId));
+        }
+        labels.addAll(prefixLabels);
+        return labels;
+    }
+
+    // Replays the intersection one list at a time, rarest first as Conjunction leads, recording the candidates
+    // left after each. Conjunction itself advances all lists together, so this extra pass only runs when profiling.
+    private static void describeConjunction(List<String> labels, List<Postings> lists, QueryProfile profile) {
+        Integer[] order = new Integer[lists.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(lists.get(a).docFreq(), lists.get(b).docFreq()));
+        int[] candidates = null;
+        int count = 0;
+        for (int i : order) {
+            Postings postings = lists.get(i);
+            if (candidates == null) {
+                count = postings.docFreq();
+                candidates = new int[count];
+                for (int j = 0; j < count; j++) {
+                    candidates[j] = postings.docId(j);
+                }
+            } else {
+                PostingsCursor cursor = postings.cursor();
+                int kept = 0;
+                for (int j = 0; j < count; j++) {
+                    if (cursor.advance(candidates[j]) == candidates[j]) {
+                        candidates[kept++] = candidates[j];
+                    }
+                }
+                count = kept;
+            }
+            profile.evaluationOrder.add(labels.get(i));
+            profile.candidates.add(count);
+        }
+    }
+
+    // WAND has no intersection steps: the lists are listed rarest first and matches tells how many were scored.
+    private static void describeDisjunction(InvertedIndex invertedIndex, int[] termIds, QueryProfile profile) {
+        Integer[] order = new Integer[termIds.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = termIds[i];
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(invertedIndex.docFreq(a), invertedIndex.docFreq(b)));
+        for (int termId : order) {
+            profile.evaluationOrder.add(invertedIndex.term(termId));
+        }
+    }
+
+    // A phrase (terms at fixed slots) or, when distance >= 0, a NEAR pair of two term ids.
+    private static final class PositionalConstraint {
+        final int[] termIds;
+        final int[] offsets;
+        final int distance;
+
+        private PositionalConstraint(int[] termIds, int[] offsets, int distance) {
+            this.termIds = termIds;
+            this.offsets = offsets;
+            this.distance = distance;
+        }
+
+        // Stopwords that are not indexed leave a gap of one position (the index counts every token); any other
+        // unknown word means the phrase cannot occur, reported as null.
+        static PositionalConstraint phrase(List<String> words, SearchContext context) {
+            int[] termIds = new int[words.size()];
+            int[] offsets = new int[words.size()];
+            int n = 0;
+            for (int slot = 0; slot < words.size(); slot++) {
+                int termId = context.termId(words.get(slot));
+                if (termId >= 0) {
+                    termIds[n] = termId;
+                    offsets[n] = slot;
+                    n++;
+                } else if (!context.analyzer.isStopword(words.get(slot))) {
+                    return null;
+                }
+            }
+            int first = n > 0 ? offsets[0] : 0;
+            for (int j = 0; j < n; j++) {
+                offsets[j] -= first; // leading gaps constrain nothing
+            }
+            return new PositionalConstraint(Arrays.copyOf(termIds, n), Arrays.copyOf(offsets, n), -1);
+        }
+
+        static PositionalConstraint near(int left, int right, int distance) {
+            return new PositionalConstraint(new int[] { Math.min(left, right), Math.max(left, right) }, null,
+                    distance);
+        }
+
+        // Matching position in the document, or -1; lists holds the positions of termIds, in order.
+        int match(int[][] lists) {
+            return distance >= 0 ? PositionalMatch.near(lists[0], lists[1], distance)
+                    : PositionalMatch.phrase(lists, offsets);
+        }
+
+        String key() {
+            StringBuilder key = new StringBuilder();
+            if (distance >= 0) {
+                return key.append(termIds[0]).append('~').append(distance).append('~').append(termIds[1]).toString();
+            }
+            key.append('"');
+            for (int j = 0; j < termIds.length; j++) {
+                key.append(j > 0 ? " " : "").append(termIds[j]).append('@').append(offsets[j]);
+            }
+            return key.append('"').toString();
+        }
+    }
+
+    // The query as echoed back: only letters, digits and the query syntax (* " /), single-spaced, in one pass.
+    private static String displayQuery(String query) {
+        StringBuilder display = new StringBuilder(query.length());
+        boolean space = false;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == '\u000B') {
+                space = display.length() > 0;
+            } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '*'
+                    || c == '"' || c == '/') {
+                if (space) {
+                    display.append(' ');
+                    space = false;
+                }
+                display.append(c);
+            }
+        }
+        return display.toString();
+    }
+
+    private static int[] distinct(int[] ids, int count) {
+        Arrays.sort(ids, 0, count);
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            if (n == 0 || ids[n - 1] != ids[i]) {
+                ids[n++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, n);
+    }
+
+    // Ids of a (sorted) that are not in b (sorted).
+    private static int[] subtract(int[] a, int[] b) {
+        int[] rest = new int[a.length];
+        int n = 0;
+        for (int i = 0, j = 0; i < a.length; i++) {
+            while (j < b.length && b[j] < a[i]) {
+                j++;
+            }
+            if (j == b.length || b[j] != a[i]) {
+                rest[n++] = a[i];
+            }
+        }
+        return Arrays.copyOf(rest, n);
+    }
+
+    private static int[] mergeDistinct(int[] a, int[] b) {
+        int[] merged = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length || j < b.length) {
+            int next = j >= b.length || (i < a.length && a[i] <= b[j]) ? a[i++] : b[j++];
+            if (n == 0 || merged[n - 1] != next) {
+                merged[n++] = next;
+            }
+        }
+        return Arrays.copyOf(merged, n);
     }
 }
@@ -0,0 +1,260 @@
+package com.myproject.mainProj;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import com.myproject.utils.JsonWriter;
+import com.myproject.utils.StatClasses;
+import com.myproject.utils.StatClasses.QueryResult;
+
+// **File:** SearchServer.java
+// **Purpose:** Embedded HTTP endpoint over a shared SearchContext, so clients can query the warm index directly
+// instead of going through a queue and a child process.
+//
+//   GET /search?q=<text>[&mode=OR][&topK=n][&profile=true]   ranked query (AND by default), optionally profiled;
+//                                             topK must be 1..maxTopK, so no request can ask for every match
+//   GET /word?q=<word>                        single-word lookup
+//   GET /doc?id=<docId>                       word frequencies of one document
+//   GET /suggest?q=<prefix>[&limit=n]         completions ranked by document frequency
+//   GET /stats                                search metrics (see Metrics)
+//   POST /reload                              load the index from disk again and switch to it (loopback only)
+//
+// The server has no authentication and is meant to sit behind the Node API, so it listens on the loopback
+// interface unless given another bind address.
+// Requests are accepted on the HTTP dispatcher thread and executed on a fixed pool. At most threads + queue
+// requests are admitted at once; anything beyond that is answered 503 immediately instead of piling up. Each
+// request searches the snapshot that was current when it started, so a reload does not disturb it.
+class SearchServer {
+
+    private final ReloadingContext contexts;
+    private final int snippetSize;
+    private final int defaultTopK;
+    private final int maxTopK;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore admitted;
+
+    static final String LOOPBACK = "127.0.0.1";
+
+    SearchServer(ReloadingContext contexts, String bindAddress, int port, int threads, int queueCapacity,
+            int snippetSize, int defaultTopK, int maxTopK) throws IOException {
+        this.contexts = contexts;
+        this.snippetSize = snippetSize;
+        this.maxTopK = Math.max(1, maxTopK);
+        // A userRunner started with -TOP_K=0 (all matches) still serves at most maxTopK documents per request.
+        this.defaultTopK = defaultTopK > 0 ? Math.min(defaultTopK, this.maxTopK) : this.maxTopK;
+        threads = Math.max(1, threads);
+        this.admitted = new Semaphore(threads + Math.max(0, queueCapacity));
+        // The semaphore bounds the work handed to the pool, so its queue never grows past queueCapacity.
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        this.server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        server.createContext("/search", exchange -> dispatch(exchange, "search"));
+        server.createContext("/word", exchange -> dispatch(exchange, "word"));
+        server.createContext("/doc", exchange -> dispatch(exchange, "doc"));
+        server.createContext("/suggest", exchange -> dispatch(exchange, "suggest"));
+        server.createContext("/stats", exchange -> dispatch(exchange, "stats"));
+        server.createContext("/reload", exchange -> dispatch(exchange, "reload"));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public InetSocketAddress address() {
+        return server.getAddress();
+    }
+
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private void dispatch(HttpExchange exchange, String endpoint) throws IOException {
+        String method = endpoint.equals("reload") ? "POST" : "GET";
+        if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+            sendError(exchange, 405, "Only " + method + " is supported");
+            return;
+        }
+        // A reload loads and maps the whole index again, so it is not open to other hosts even when the server is
+        // bound to a wider address; operators have the stdin `reload` command and -WATCH.
+        if (endpoint.equals("reload") && !exchange.getRemoteAddress().getAddress().isLoopbackAddress()) {
+            sendError(exchange, 403, "Reload is only accepted from the local host");
+            return;
+        }
+        if (!admitted.tryAcquire()) {
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            sendError(exchange, 503, "Server busy, try again later");
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    handle(exchange, endpoint);
+                } catch (IOException e) {
+                    System.err.println("Error writing response: " + e.getMessage());
+                } finally {
+                    exchange.close();
+                    admitted.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            admitted.release();
+            sendError(exchange, 503, "Server shutting down");
+        }
+    }
+
+    private void handle(HttpExchange exchange, String endpoint) throws IOException {
+        if (endpoint.equals("reload")) {
+            reload(exchange);
+            return;
+        }
+        if (endpoint.equals("stats")) {
+            sendJSON(exchange, 200, "stats", Metrics.report());
+            return;
+        }
+        SearchContext context = contexts.current();
+        QueryResult result;
+        try {
+            result = search(context, endpoint, parseQuery(exchange.getRequestURI().getRawQuery()));
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+            return;
+        } catch (Exception e) {
+            sendError(exchange, 500, "Error processing query: " + e.getMessage());
+            return;
+        }
+
+        // Length 0 selects chunked transfer: the JSON is streamed through to the socket as it is written.
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 8192)) {
+            long lap = Metrics.now();
+            StatClasses.writeResult(new JsonWriter(writer), result, context.documentIdToFilename);
+            Metrics.SERIALIZE.since(lap);
+        }
+    }
+
+    private void reload(HttpExchange exchange) throws IOException {
+        String summary;
+        try {
+            summary = contexts.reload();
+        } catch (IOException e) {
+            sendError(exchange, 500, e.getMessage());
+            return;
+        }
+        sendJSON(exchange, 200, "reloaded", summary);
+    }
+
+    private QueryResult search(SearchContext context, String endpoint, Map<String, String> params) throws IOException {
+        QueryResult result;
+        String value;
+        switch (endpoint) {
+            case "word":
+                value = require(params, "q");
+                result = SearchProcessor.searchByWord(value.toLowerCase(Locale.ROOT), context, snippetSize);
+                break;
+            case "doc":
+                value = require(params, "id");
+                int docId;
+                try {
+                    docId = Integer.parseInt(value.trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Invalid document id: " + value);
+                }
+                result = SearchProcessor.searchByDocument(docId, context.invertedIndex);
+                break;
+            case "suggest":
+                value = require(params, "q");
+                result = SearchProcessor.suggest(value, context.invertedIndex,
+                        intParam(params, "limit", Autocomplete.MAX_SUGGESTIONS));
+                break;
+            default:
+                value = require(params, "q");
+                boolean disjunctive = "OR".equalsIgnoreCase(params.get("mode"));
+                int topK = intParam(params, "topK", defaultTopK);
+                if (topK < 1 || topK > maxTopK) {
+                    throw new IllegalArgumentException("topK must be between 1 and " + maxTopK + ": " + topK);
+                }
+                result = SearchProcessor.searchByQuery(value, context, snippetSize, disjunctive, topK,
+                        "true".equalsIgnoreCase(params.get("profile")));
+                break;
+        }
+        if (result == null) {
+            result = new QueryResult();
+        }
+        result.queryString = value;
+        return result;
+    }
+
+    private static String require(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        if (!params.containsKey(name)) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(params.get(name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + params.get(name));
+        }
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        sendJSON(exchange, status, "error", message);
+    }
+
+    // A small one-field JSON object, {"key": value}.
+    private static void sendJSON(HttpExchange exchange, int status, String key, String value) throws IOException {
+        StringWriter text = new StringWriter();
+        new JsonWriter(text).beginObject().name(key).value(value).endObject();
+        byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.myproject.mainProj;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// **File:** SegmentSet.java
+// **Purpose:** Incremental segments on top of the base index, in <baseDir>/segments:
+//   segments.txt   : "Segment,DocCount" header, then one line per live segment file
+//   seg_<n>.bin    : an IndexSegment (unstemmed) holding only the documents added by one ingest or merge
+//   tombstones.bin : BitSet of deleted doc ids, for the base index and every segment alike
+//   write.lock     : held while any of the above changes; readers never take it
+// Doc ids are global and never reused, so a tombstone stays valid when its document's segment is merged away and
+// merges can run while documents are being added or deleted. Segment files are never modified after they are
+// written; the manifest and tombstones are replaced atomically.
+final class SegmentSet {
+
+    public static final String DIR_NAME = "segments";
+
+    private static final String MANIFEST = "segments.txt";
+    private static final String TOMBSTONES = "tombstones.bin";
+    private static final String LOCK = "write.lock";
+    // FileLock only excludes other processes; threads of this one queue here first.
+    private static final ReentrantLock LOCAL_LOCK = new ReentrantLock();
+    // Times open() re-reads the manifest when a merge removes a listed segment under it.
+    private static final int OPEN_ATTEMPTS = 10;
+
+    private SegmentSet() {
+    }
+
+    static final class SegmentInfo {
+        final String name;
+        final int docCount;
+
+        SegmentInfo(String name, int docCount) {
+            this.name = name;
+            this.docCount = docCount;
+        }
+    }
+
+    // What a searcher loads: the live segments, opened while the manifest could not change, and the deletions.
+    static final class Snapshot {
+        final List<IndexSegment> segments;
+        final BitSet deleted;
+
+        Snapshot(List<IndexSegment> segments, BitSet deleted) {
+            this.segments = segments;
+            this.deleted = deleted;
+        }
+    }
+
+    // Work done while holding the write lock; see withLock.
+    interface LockedWork<T> {
+        T run() throws IOException;
+    }
+
+    public static boolean exists(String baseDir) {
+        return Files.isRegularFile(Paths.get(baseDir, DIR_NAME, MANIFEST));
+    }
+
+    // Runs work while holding the write lock, first against other threads of this process and then against
+    // other processes, and returns its result.
+    public static <T> T withLock(String baseDir, LockedWork<T> work) throws IOException {
+        Path dir = Paths.get(baseDir, DIR_NAME);
+        Files.createDirectories(dir);
+        LOCAL_LOCK.lock();
+        try (FileChannel channel = FileChannel.open(dir.resolve(LOCK), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                return work.run();
+            } finally {
+                lock.release();
+            }
+        } finally {
+            LOCAL_LOCK.unlock();
+        }
+    }
+
+    // Reads without the write lock, so searches work in a read-only directory and never wait for a merge. The
+    // manifest and tombstones are only ever replaced by rename, so each read sees one whole version of them. A
+    // listed segment that is already gone was merged away after the manifest was read, and the newer manifest
+    // names its replacement, so the read starts over.
+    public static Snapshot open(String baseDir) throws IOException {
+        for (int attempt = 1;; attempt++) {
+            List<IndexSegment> segments = new ArrayList<>();
+            try {
+                for (SegmentInfo info : readManifest(baseDir)) {
+                    segments.add(IndexSegment.open(file(baseDir, info.name).toString()));
+                }
+            } catch (NoSuchFileException e) {
+                if (attempt == OPEN_ATTEMPTS) {
+                    throw e;
+                }
+                continue;
+            }
+            return new Snapshot(segments, readTombstones(baseDir));
+        }
+    }
+
+    // The caller holds the write lock (runs inside withLock). index must be unstemmed; its doc ids must be new.
+    public static void addSegment(String baseDir, InvertedIndex index) throws IOException {
+        String name = newSegmentName(baseDir);
+        IndexSegment.write(file(baseDir, name).toString(), index, false);
+        List<SegmentInfo> manifest = readManifest(baseDir);
+        manifest.add(new SegmentInfo(name, index.docCount()));
+        writeManifest(baseDir, manifest);
+    }
+
+    // The caller holds the write lock.
+    public static void markDeleted(String baseDir, List<Integer> docIds) throws IOException {
+        BitSet deleted = readTombstones(baseDir);
+        for (int docId : docIds) {
+            deleted.set(docId);
+        }
+        Path tombstones = file(baseDir, TOMBSTONES);
+        Path temp = file(baseDir, TOMBSTONES + ".tmp");
+        Files.write(temp, deleted.toByteArray());
+        Files.move(temp, tombstones, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        if (!exists(baseDir)) {
+            writeManifest(baseDir, new ArrayList<>()); // deletions alone also make the base index combined
+        }
+    }
+
+    // Runs one merge chosen by TieredMergePolicy, dropping deleted documents. The lock is only held to pick the
+    // segments and to swap them for the result, so ingest and deletes are not blocked while the merge writes.
+    // Returns a description of the merge, or null when nothing was due.
+    public static String mergeOnce(String baseDir) throws IOException {
+        List<SegmentInfo> merging = new ArrayList<>();
+        String name = withLock(baseDir, () -> {
+            merging.addAll(TieredMergePolicy.findMerge(readManifest(baseDir)));
+            if (merging.isEmpty()) {
+                return null;
+            }
+            String reserved = newSegmentName(baseDir);
+            Files.createFile(file(baseDir, reserved)); // reserves the name
+            return reserved;
+        });
+        if (name == null) {
+            return null;
+        }
+
+        List<InvertedIndex> parts = new ArrayList<>();
+        int inputDocs = 0;
+        for (SegmentInfo info : merging) {
+            parts.add(InvertedIndex.open(IndexSegment.open(file(baseDir, info.name).toString())));
+            inputDocs += info.docCount;
+        }
+        InvertedIndex merged = InvertedIndex.combine(parts, readTombstones(baseDir));
+        IndexSegment.write(file(baseDir, name).toString(), merged, false);
+
+        boolean swapped = withLock(baseDir, () -> {
+            List<SegmentInfo> manifest = readManifest(baseDir);
+            List<SegmentInfo> kept = new ArrayList<>();
+            int found = 0;
+            for (SegmentInfo info : manifest) {
+                if (contains(merging, info.name)) {
+                    found++;
+                } else {
+                    kept.add(info);
+                }
+            }
+            if (found != merging.size()) {
+                Files.deleteIfExists(file(baseDir, name)); // another process merged some of them first
+                return false;
+            }
+            if (merged.docCount() > 0) {
+                kept.add(new SegmentInfo(name, merged.docCount()));
+            } else {
+                Files.deleteIfExists(file(baseDir, name));
+            }
+            writeManifest(baseDir, kept);
+            for (SegmentInfo info : merging) {
+                // Readers that still map the old file keep their mapping; where the platform refuses to delete
+                // a mapped file it is simply left behind.
+                try {
+                    Files.deleteIfExists(file(baseDir, info.name));
+                } catch (IOException e) {
+                    System.err.println("Could not delete merged segment " + info.name + ": " + e.getMessage());
+                }
+            }
+            return true;
+        });
+        if (!swapped) {
+            return null;
+        }
+        return String.format("merged %d segments (%d docs) into %s (%d live docs)", merging.size(), inputDocs, name,
+                merged.docCount());
+    }
+
+    // Drops every segment and deletion; a full rebuild starts doc ids over.
+    public static void clear(String baseDir) throws IOException {
+        Path dir = Paths.get(baseDir, DIR_NAME);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        withLock(baseDir, () -> {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path path : (Iterable<Path>) files::iterator) {
+                    if (!path.getFileName().toString().equals(LOCK)) {
+                        Files.delete(path);
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    static List<SegmentInfo> readManifest(String baseDir) throws IOException {
+        List<SegmentInfo> manifest = new ArrayList<>();
+        Path path = file(baseDir, MANIFEST);
+        if (!Files.isRegularFile(path)) {
+            return manifest;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            reader.readLine(); // header
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(",");
+                if (parts.length == 2) {
+                    manifest.add(new SegmentInfo(parts[0], Integer.parseInt(parts[1].trim())));
+                }
+            }
+        }
+        return manifest;
+    }
+
+    private static void writeManifest(String baseDir, List<SegmentInfo> manifest) throws IOException {
+        Path temp = file(baseDir, MANIFEST + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+            writer.write("Segment,DocCount\n");
+            for (SegmentInfo info : manifest) {
+                writer.write(info.name + "," + info.docCount + "\n");
+            }
+        }
+        Files.move(temp, file(baseDir, MANIFEST), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static BitSet readTombstones(String baseDir) throws IOException {
+        Path path = file(baseDir, TOMBSTONES);
+        return Files.isRegularFile(path) ? BitSet.valueOf(Files.readAllBytes(path)) : new BitSet();
+    }
+
+    // One past the highest seg_<n>.bin in the directory, live or not, so names are never reused.
+    private static String newSegmentName(String baseDir) throws IOException {
+        int next = 0;
+        try (Stream<Path> files = Files.list(Paths.get(baseDir, DIR_NAME))) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                String fileName = path.getFileName().toString();
+                if (fileName.startsWith("seg_") && fileName.endsWith(".bin")) {
+                    try {
+                        next = Math.max(next, Integer.parseInt(fileName.substring(4, fileName.length() - 4)) + 1);
+                    } catch (NumberFormatException e) {
+                        // not one of ours
+                    }
+                }
+            }
+        }
+        return "seg_" + next + ".bin";
+    }
+
+    private static boolean contains(List<SegmentInfo> segments, String name) {
+        for (SegmentInfo info : segments) {
+            if (info.name.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Path file(String baseDir, String name) {
+        return Paths.get(baseDir, DIR_NAME, name);
+    }
+}
@@ -4,76 +4,230 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
-import java.util.Set;
-import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 // **File:** SnippetGenerator.java
 // **Purpose:** Contains methods for generating snippets.
 class SnippetGenerator {
 
-    public static String generateSnippet(Map<Integer, String> documentIdToFilename, int docId, int positionInDocument, int snippetSize) {
-        String documentContent = readDocumentContent(documentIdToFilename, docId);
-        if (documentContent != null) {
-            documentContent = documentContent.toLowerCase();
-            documentContent = documentContent.replaceAll("<[^>]*>", " "); 
-            documentContent = documentContent.replaceAll("[^a-zA-Z0-9\\s]", " ");
-
-            Scanner scanner = new Scanner(documentContent);
-            List<String> words = new ArrayList<>();
-            while (scanner.hasNext()) {
-                words.add(scanner.next().trim());
+    public static final String TIMED_OUT = "Snippet not ready before the deadline.";
+    // deadlineMillis for callers that need every snippet, whatever it costs (batch runs): results never depend
+    // on load.
+    public static final long NO_DEADLINE = 0;
+
+    private final Map<Integer, String> documentIdToFilename;
+    private final DocumentStore documentStore; // null when documents.bin has not been compiled
+    private final LruCache<Integer, String[]> tokenCache;
+    private final LruCache<SnippetKey, String> snippetCache;
+    private final ExecutorService executor; // null when snippets are generated on the calling thread
+    private final long deadlineMillis;
+
+    // Where a query's snippets came from, for -PROFILE; counted from the snippet threads.
+    static final class Sources {
+        final AtomicInteger cache = new AtomicInteger();
+        final AtomicInteger store = new AtomicInteger();
+        final AtomicInteger files = new AtomicInteger();
+        final AtomicInteger documents = new AtomicInteger(); // tokenised documents already in the cache
+    }
+
+    // cacheBytes bounds the memory used for cached documents and snippets (0 disables caching).
+    // A non-null executor (see newExecutor) generates a query's snippets in parallel; deadlineMillis caps how long
+    // a query waits for them (NO_DEADLINE waits for all). The executor is not owned: generators for successive
+    // index snapshots share one.
+    public SnippetGenerator(Map<Integer, String> documentIdToFilename, DocumentStore documentStore, long cacheBytes,
+            ExecutorService executor, long deadlineMillis) {
+        this.documentIdToFilename = documentIdToFilename;
+        this.documentStore = documentStore;
+        // A quarter of the budget holds finished snippets, the rest tokenised documents.
+        this.snippetCache = new LruCache<>(cacheBytes / 4, SnippetGenerator::stringBytes);
+        this.tokenCache = new LruCache<>(cacheBytes - cacheBytes / 4, SnippetGenerator::tokensBytes);
+        this.deadlineMillis = deadlineMillis;
+        this.executor = executor;
+    }
+
+    // Daemon pool for parallel snippets, or null (snippets on the calling thread) for threads <= 1.
+    public static ExecutorService newExecutor(int threads) {
+        if (threads <= 1) {
+            return null;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "snippet-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Snippets for several hits, in the same order as docIds. Unless there is NO_DEADLINE, documents whose snippet
+    // is not ready by the deadline get TIMED_OUT instead of holding up the whole result; null marks a document
+    // that could not be read.
+    public String[] generateSnippets(int[] docIds, int[] positions, int snippetSize) {
+        return generateSnippets(docIds, positions, snippetSize, null);
+    }
+
+    // As above, tallying each snippet's source in sources unless it is null.
+    public String[] generateSnippets(int[] docIds, int[] positions, int snippetSize, Sources sources) {
+        String[] snippets = new String[docIds.length];
+        if (executor == null || docIds.length < 2) {
+            for (int i = 0; i < docIds.length; i++) {
+                snippets[i] = generateSnippet(docIds[i], positions[i], snippetSize, sources);
             }
-            scanner.close();
+            return snippets;
+        }
 
-            int position = positionInDocument - 1;
-            int totalWords = words.size();
-            int start = Math.max(0, position - snippetSize);
-            int end = Math.min(totalWords - 1, position + snippetSize);
+        List<Future<String>> futures = new ArrayList<>(docIds.length);
+        for (int i = 0; i < docIds.length; i++) {
+            int docId = docIds[i];
+            int position = positions[i];
+            futures.add(executor.submit(() -> generateSnippet(docId, position, snippetSize, sources)));
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+        for (int i = 0; i < futures.size(); i++) {
+            Future<String> future = futures.get(i);
+            try {
+                snippets[i] = deadlineMillis <= NO_DEADLINE ? future.get()
+                        : future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                snippets[i] = TIMED_OUT;
+            } catch (ExecutionException e) {
+                snippets[i] = null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                snippets[i] = TIMED_OUT;
+            }
+        }
+        return snippets;
+    }
 
-            StringBuilder snippetBuilder = new StringBuilder();
-            for (int i = start; i <= end; i++) {
-                snippetBuilder.append(words.get(i)).append(" ");
+    public String generateSnippet(int docId, int positionInDocument, int snippetSize) {
+        return generateSnippet(docId, positionInDocument, snippetSize, null);
+    }
+
+    private String generateSnippet(int docId, int positionInDocument, int snippetSize, Sources sources) {
+        SnippetKey key = new SnippetKey(docId, positionInDocument, snippetSize);
+        String snippet = snippetCache.get(key);
+        if (snippet != null) {
+            Metrics.SNIPPET_CACHE_HITS.increment();
+            if (sources != null) {
+                sources.cache.incrementAndGet();
             }
-            return snippetBuilder.toString().trim();
         } else {
-            return null;
+            Metrics.SNIPPET_CACHE_MISSES.increment();
+            snippet = buildSnippet(docId, positionInDocument, snippetSize, sources);
+            if (snippet != null) {
+                snippetCache.put(key, snippet);
+            }
+        }
+        return snippet;
+    }
+
+    public String cacheStats() {
+        return "snippets: " + snippetCache.stats() + "\ndocuments: " + tokenCache.stats();
+    }
+
+    private String buildSnippet(int docId, int positionInDocument, int snippetSize, Sources sources) {
+        int position = positionInDocument - 1;
+
+        // Pre-tokenised documents: cut the window straight out of the store.
+        if (documentStore != null && documentStore.contains(docId)) {
+            int start = Math.max(0, position - snippetSize);
+            int end = Math.min(documentStore.tokenCount(docId) - 1, position + snippetSize);
+            Metrics.STORE_SNIPPETS.increment();
+            if (sources != null) {
+                sources.store.incrementAndGet();
+            }
+            return documentStore.text(docId, start, end);
+        }
+
+        String[] words = tokenCache.get(docId);
+        if (words != null && sources != null) {
+            sources.documents.incrementAndGet();
+        }
+        if (words == null) {
+            String documentContent = readDocumentContent(documentIdToFilename, docId);
+            if (documentContent == null) {
+                return null;
+            }
+            if (sources != null) {
+                sources.files.incrementAndGet();
+            }
+            words = Analyzer.tokens(documentContent, true).toArray(new String[0]);
+            tokenCache.put(docId, words);
+        }
+
+        int totalWords = words.length;
+        int start = Math.max(0, position - snippetSize);
+        int end = Math.min(totalWords - 1, position + snippetSize);
+
+        StringBuilder snippetBuilder = new StringBuilder();
+        for (int i = start; i <= end; i++) {
+            snippetBuilder.append(words[i]).append(" ");
+        }
+        return snippetBuilder.toString().trim();
+    }
+
+    // Approximate heap footprint used for the cache budgets (object headers plus character data).
+    private static long stringBytes(String s) {
+        return 56 + 2L * s.length();
+    }
+
+    private static long tokensBytes(String[] tokens) {
+        long bytes = 16 + 4L * tokens.length;
+        for (String token : tokens) {
+            bytes += stringBytes(token);
         }
+        return bytes;
     }
 
-    public static String generateSnippetForQuery(HashMap<String, HashMap<Integer, List<Integer>>> invertedIndex, Map<Integer, String> documentIdToFilename, int docId, Set<String> queryTerms, int snippetSize) {
-        TreeMap<Integer, String> positionToWordMap = new TreeMap<>();
-        for (String term : queryTerms) {
-            HashMap<Integer, List<Integer>> docIdToPositions = invertedIndex.get(term);
-            if (docIdToPositions != null) {
-                List<Integer> positions = docIdToPositions.get(docId);
-                if (positions != null) {
-                    for (Integer pos : positions) {
-                        positionToWordMap.put(pos, term);
-                    }
-                }
+    private static final class SnippetKey {
+        private final int docId;
+        private final int position;
+        private final int snippetSize;
+
+        SnippetKey(int docId, int position, int snippetSize) {
+            this.docId = docId;
+            this.position = position;
+            this.snippetSize = snippetSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SnippetKey)) {
+                return false;
             }
+            SnippetKey other = (SnippetKey) o;
+            return docId == other.docId && position == other.position && snippetSize == other.snippetSize;
         }
 
-        if (!positionToWordMap.isEmpty()) {
-            Integer earliestPosition = positionToWordMap.firstKey();
-            return generateSnippet(documentIdToFilename, docId, earliestPosition, snippetSize);
-        } else {
-            return null;
+        @Override
+        public int hashCode() {
+            return (docId * 31 + position) * 31 + snippetSize;
         }
     }
 
-    private static String readDocumentContent(Map<Integer, String> documentIdToFilename, int docId) {
+    static String readDocumentContent(Map<Integer, String> documentIdToFilename, int docId) {
         String filename = documentIdToFilename.get(docId);
         if (filename == null) {
             System.err.println("Error: Document ID " + docId + " not found in document_id_map.txt");
             return null;
         }
+        long start = Metrics.now();
         try {
-            return new String(Files.readAllBytes(Paths.get(filename)));
+            byte[] bytes = Files.readAllBytes(Paths.get(filename));
+            Metrics.DOCUMENTS_READ.increment();
+            Metrics.DOCUMENT_BYTES_READ.add(bytes.length);
+            Metrics.READ_DOCUMENT.since(start);
+            return new String(bytes);
         } catch (IOException e) {
             System.err.println("Error reading document " + filename + ": " + e.getMessage());
             return null;
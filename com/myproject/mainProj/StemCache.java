@@ -0,0 +1,93 @@
+package com.myproject.mainProj;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// **File:** StemCache.java
+// **Purpose:** word -> stem lookups shared by the loaders and every query thread. The stems saved in
+// stemming_dictionary.txt and its journal are loaded once into a map that is never written afterwards; any other
+// word is stemmed by the calling thread's PorterStemmer and remembered in a bounded concurrent map, so lookups
+// never take a lock. flush() appends only the stems learned since the last flush to the journal instead of
+// rewriting the dictionary.
+final class StemCache {
+
+    public static final String DICTIONARY_FILE = "stemming_dictionary.txt";
+    public static final String JOURNAL_FILE = "stemming_dictionary.journal";
+    // Past this many learned words new ones are still stemmed, just not remembered (or journaled) until restart.
+    static final int MAX_LEARNED = 1 << 18;
+
+    private final Map<String, String> known;
+    private final ConcurrentHashMap<String, String> learned = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> unsaved = new ConcurrentLinkedQueue<>();
+    private final Path journal; // null keeps learned stems in memory only
+    private final int maxLearned;
+
+    StemCache(Map<String, String> known, Path journal, int maxLearned) {
+        this.known = known;
+        this.journal = journal;
+        this.maxLearned = maxLearned;
+    }
+
+    // The dictionary and journal under baseDir; the journal is the dictionary's format, so later lines win.
+    public static StemCache open(String baseDir) {
+        Map<String, String> known =
+                DataLoader.loadStemmingDictionary(Paths.get(baseDir, DICTIONARY_FILE).toString());
+        Path journal = Paths.get(baseDir, JOURNAL_FILE);
+        if (Files.isRegularFile(journal)) {
+            known.putAll(DataLoader.loadStemmingDictionary(journal.toString()));
+        }
+        return new StemCache(known, journal, MAX_LEARNED);
+    }
+
+    public String stem(String word) {
+        String stem = known.get(word);
+        if (stem == null) {
+            stem = learned.get(word);
+        }
+        if (stem == null) {
+            Metrics.STEM_CACHE_MISSES.increment();
+            stem = PorterStemmer.stem(word);
+            // The size check is racy, so the bound can be overshot by about the number of stemming threads.
+            if (learned.size() < maxLearned && learned.putIfAbsent(word, stem) == null) {
+                unsaved.add(word);
+            }
+        } else {
+            Metrics.STEM_CACHE_HITS.increment();
+        }
+        return stem;
+    }
+
+    // Lets indexed stems share the term dictionary's strings. Only called before the cache is shared.
+    void shareStrings(TermDictionary dictionary) {
+        known.replaceAll((word, stem) -> {
+            String canonical = dictionary.canonical(stem);
+            return canonical != null ? canonical : stem;
+        });
+    }
+
+    // Appends the stems learned since the last flush as "word,stem" lines. Each flush is a single append, so
+    // concurrent processes sharing the directory may duplicate a line but never interleave one.
+    public synchronized void flush() {
+        if (journal == null || unsaved.isEmpty()) {
+            return;
+        }
+        StringBuilder lines = new StringBuilder();
+        String word;
+        while ((word = unsaved.poll()) != null) {
+            lines.append(word).append(',').append(learned.get(word)).append('\n');
+        }
+        try {
+            Files.write(journal, lines.toString().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+                    StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.err.println("Error writing stemming journal: " + e.getMessage());
+        }
+    }
+}
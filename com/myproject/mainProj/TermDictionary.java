@@ -0,0 +1,73 @@
+package com.myproject.mainProj;
+
+import java.util.Arrays;
+
+// **File:** TermDictionary.java
+// **Purpose:** The single copy of every indexed term, mapped to a dense int id. Ids are ranks in sorted order, so
+// they double as IndexSegment / ForwardIndex slots and ranges of ids are prefix ranges of terms. Lookups go
+// through an open-addressing hash table over the ids instead of a binary search of string comparisons.
+final class TermDictionary {
+
+    private final String[] terms;
+    private final int[] table; // id + 1 per slot, 0 = empty; at most half full
+    private final int mask;
+
+    // terms must be sorted and distinct; the array is kept, not copied.
+    TermDictionary(String[] terms) {
+        this.terms = terms;
+        int capacity = Integer.highestOneBit(Math.max(2, terms.length) * 2 - 1) << 1;
+        this.table = new int[capacity];
+        this.mask = capacity - 1;
+        for (int id = 0; id < terms.length; id++) {
+            int slot = mix(terms[id].hashCode()) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id + 1;
+        }
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    public String term(int id) {
+        return terms[id];
+    }
+
+    // Id of the term, or -1 if it is not in the dictionary.
+    public int id(String term) {
+        int slot = mix(term.hashCode()) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            if (terms[entry - 1].equals(term)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    // The dictionary's own instance of an equal string, so callers can drop their duplicate; null if absent.
+    public String canonical(String term) {
+        int id = id(term);
+        return id >= 0 ? terms[id] : null;
+    }
+
+    // First id whose term sorts at or after the given string (size() if there is none).
+    public int ceilingId(String term) {
+        int i = Arrays.binarySearch(terms, term);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    // Ids [from, to) of the terms that start with prefix: sorted order makes them one contiguous run.
+    public int[] prefixRange(String prefix) {
+        return new int[] { ceilingId(prefix), ceilingId(prefix + Character.MAX_VALUE) };
+    }
+
+    // Spreads String.hashCode so that similar terms do not cluster under linear probing.
+    private static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,47 @@
+package com.myproject.mainProj;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// **File:** TieredMergePolicy.java
+// **Purpose:** Decides which incremental segments to merge. Segments are grouped into tiers by document count
+// (each tier MERGE_FACTOR times larger than the one below, everything under FLOOR_DOCS sharing the lowest tier);
+// once a tier holds MERGE_FACTOR segments they are merged into one segment of the next tier. Ingest therefore
+// costs a small write, each document is rewritten about once per tier, and a query never fans out over more than
+// MERGE_FACTOR segments per tier.
+final class TieredMergePolicy {
+
+    static final int MERGE_FACTOR = 10;
+    static final int FLOOR_DOCS = 1000;
+
+    private TieredMergePolicy() {
+    }
+
+    // The segments to merge next (smallest tier first), or an empty list when every tier is below the factor.
+    static List<SegmentSet.SegmentInfo> findMerge(List<SegmentSet.SegmentInfo> segments) {
+        List<SegmentSet.SegmentInfo> bySize = new ArrayList<>(segments);
+        bySize.sort(Comparator.comparingInt(info -> info.docCount));
+        int i = 0;
+        while (i < bySize.size()) {
+            int tier = tier(bySize.get(i).docCount);
+            int end = i;
+            while (end < bySize.size() && tier(bySize.get(end).docCount) == tier) {
+                end++;
+            }
+            if (end - i >= MERGE_FACTOR) {
+                return new ArrayList<>(bySize.subList(i, i + MERGE_FACTOR));
+            }
+            i = end;
+        }
+        return new ArrayList<>();
+    }
+
+    static int tier(int docCount) {
+        int tier = 0;
+        for (long size = FLOOR_DOCS; docCount > size; size *= MERGE_FACTOR) {
+            tier++;
+        }
+        return tier;
+    }
+}
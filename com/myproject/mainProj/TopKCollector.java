@@ -0,0 +1,66 @@
+package com.myproject.mainProj;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// **File:** TopKCollector.java
+// **Purpose:** Keeps the k best-scoring hits in a bounded min-heap (k <= 0 keeps every hit).
+class TopKCollector {
+
+    static class ScoredDoc {
+        final int docId;
+        final double score;
+        final int firstPosition;
+
+        ScoredDoc(int docId, double score, int firstPosition) {
+            this.docId = docId;
+            this.score = score;
+            this.firstPosition = firstPosition;
+        }
+    }
+
+    // Best first; equal scores fall back to the lower doc id so results are deterministic.
+    private static final Comparator<ScoredDoc> RANKING =
+            Comparator.comparingDouble((ScoredDoc d) -> -d.score).thenComparingInt(d -> d.docId);
+
+    private final int k;
+    private final PriorityQueue<ScoredDoc> heap;
+    private int collected;
+
+    TopKCollector(int k) {
+        this.k = k;
+        this.heap = new PriorityQueue<>(RANKING.reversed());
+    }
+
+    public boolean isFull() {
+        return k > 0 && heap.size() >= k;
+    }
+
+    // Minimum score a new hit must beat to enter the result; -infinity until the heap is full.
+    public double threshold() {
+        return isFull() ? heap.peek().score : Double.NEGATIVE_INFINITY;
+    }
+
+    public void collect(int docId, double score, int firstPosition) {
+        collected++;
+        if (!isFull()) {
+            heap.add(new ScoredDoc(docId, score, firstPosition));
+        } else if (score > heap.peek().score) {
+            heap.poll();
+            heap.add(new ScoredDoc(docId, score, firstPosition));
+        }
+    }
+
+    // Hits offered so far, including those that did not make the top k.
+    public int collected() {
+        return collected;
+    }
+
+    public List<ScoredDoc> results() {
+        List<ScoredDoc> results = new ArrayList<>(heap);
+        results.sort(RANKING);
+        return results;
+    }
+}
@@ -0,0 +1,36 @@
+package com.myproject.mainProj;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+// **File:** VByte.java
+// **Purpose:** Variable-byte encoding of non-negative ints (7 data bits per byte, high bit marks the last byte).
+final class VByte {
+
+    private VByte() {
+    }
+
+    public static void write(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write(value & 0x7F);
+            value >>>= 7;
+        }
+        out.write(value | 0x80);
+    }
+
+    // Reads one value starting at the buffer's absolute offset; returns the value and
+    // stores the offset just past it in next[0].
+    public static int read(ByteBuffer buffer, int offset, int[] next) {
+        int value = 0;
+        int shift = 0;
+        while (true) {
+            int b = buffer.get(offset++);
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) != 0) {
+                next[0] = offset;
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
@@ -1,59 +1,145 @@
 package com.myproject.mainProj;
 
+import java.io.BufferedReader;
 import java.io.IOException;
-import java.nio.file.Paths;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+
+import com.myproject.utils.JsonWriter;
+import com.myproject.utils.StatClasses;
 import com.myproject.utils.StatClasses.QueryResult;
 
 public class userRunner {
 
     public static void main(String[] args) {
-        System.out.println("userrunnner is running");
-
         if (args.length == 0 || args[0] == null || args[0].trim().isEmpty()) {
-            System.err.println("Usage: java userRunner <baseDir>");
+            System.err.println("Usage: java userRunner <baseDir> [-TOP_K=number] [-SNIPPET_CACHE_MB=number] [-SNIPPET_THREADS=number] [-SNIPPET_DEADLINE_MS=number] [-QUERY_CACHE_MB=number] [-QUERY_CACHE_TTL=seconds] [-MEMORY_REPORT] [-PROTOCOL] [-HTTP=port] [-HTTP_BIND=address] [-HTTP_QUEUE=number] [-HTTP_MAX_TOP_K=number] [-WORKERS=number] [-MERGE_INTERVAL=seconds] [-WATCH] [-METRICS=on|off]");
             return;
         }
 
         boolean doStemming = false;
         int snippetSize = 5;
+        int topK = 20; // ranked queries return at most this many documents (0 = all matches)
+        long snippetCacheBytes = 64L << 20; // documents and snippets kept in memory across queries
+        int snippetThreads = Runtime.getRuntime().availableProcessors();
+        long snippetDeadlineMillis = 2000; // hits whose snippet takes longer get a placeholder
+        long queryCacheBytes = 16L << 20; // finished results for repeated queries
+        long queryCacheTtlSeconds = 300;
+        boolean protocol = false; // tagged requests answered concurrently as JSON lines (see serveProtocol)
+        int workers = Runtime.getRuntime().availableProcessors();
+        int httpPort = -1; // -HTTP=port serves /search, /word and /doc instead of reading stdin
+        String httpBind = SearchServer.LOOPBACK; // -HTTP_BIND=0.0.0.0 accepts connections from other hosts
+        int httpQueue = 64; // requests waiting for a worker before the server answers 503
+        int httpMaxTopK = 100; // largest topK an HTTP request may ask for; larger (or 0) is answered 400
+        boolean memoryReport = false;
+        // -MERGE_INTERVAL=n merges incremental segments every n seconds from this process; off by default, since it
+        // takes the index's write lock and rewrites files that other readers of the directory share
+        long mergeIntervalSeconds = 0;
+        boolean watch = false; // reload the index whenever its files change on disk
+        boolean metrics = true; // per-stage latencies and counters for `stats` and JMX
+
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("-TOP_K=")) {
+                topK = Integer.parseInt(args[i].substring("-TOP_K=".length()));
+            } else if (args[i].startsWith("-SNIPPET_CACHE_MB=")) {
+                snippetCacheBytes = Long.parseLong(args[i].substring("-SNIPPET_CACHE_MB=".length())) << 20;
+            } else if (args[i].startsWith("-SNIPPET_THREADS=")) {
+                snippetThreads = Integer.parseInt(args[i].substring("-SNIPPET_THREADS=".length()));
+            } else if (args[i].startsWith("-SNIPPET_DEADLINE_MS=")) {
+                snippetDeadlineMillis = Long.parseLong(args[i].substring("-SNIPPET_DEADLINE_MS=".length()));
+            } else if (args[i].startsWith("-QUERY_CACHE_MB=")) {
+                queryCacheBytes = Long.parseLong(args[i].substring("-QUERY_CACHE_MB=".length())) << 20;
+            } else if (args[i].startsWith("-QUERY_CACHE_TTL=")) {
+                queryCacheTtlSeconds = Long.parseLong(args[i].substring("-QUERY_CACHE_TTL=".length()));
+            } else if (args[i].equals("-MEMORY_REPORT")) {
+                memoryReport = true;
+            } else if (args[i].equals("-PROTOCOL")) {
+                protocol = true;
+            } else if (args[i].startsWith("-HTTP=")) {
+                httpPort = Integer.parseInt(args[i].substring("-HTTP=".length()));
+            } else if (args[i].startsWith("-HTTP_BIND=")) {
+                httpBind = args[i].substring("-HTTP_BIND=".length());
+            } else if (args[i].startsWith("-HTTP_QUEUE=")) {
+                httpQueue = Integer.parseInt(args[i].substring("-HTTP_QUEUE=".length()));
+            } else if (args[i].startsWith("-HTTP_MAX_TOP_K=")) {
+                httpMaxTopK = Integer.parseInt(args[i].substring("-HTTP_MAX_TOP_K=".length()));
+            } else if (args[i].startsWith("-WORKERS=")) {
+                workers = Integer.parseInt(args[i].substring("-WORKERS=".length()));
+            } else if (args[i].startsWith("-MERGE_INTERVAL=")) {
+                mergeIntervalSeconds = Long.parseLong(args[i].substring("-MERGE_INTERVAL=".length()));
+            } else if (args[i].equals("-WATCH")) {
+                watch = true;
+            } else if (args[i].startsWith("-METRICS=")) {
+                metrics = !args[i].substring("-METRICS=".length()).equalsIgnoreCase("off");
+            } else {
+                System.err.println("Unknown argument: " + args[i]);
+            }
+        }
+
+        // In protocol mode stdout carries nothing but replies; diagnostics from the loaders and searches go to stderr.
+        PrintStream replies = System.out;
+        if (protocol) {
+            System.setOut(System.err);
+        }
+        System.out.println("userrunnner is running");
 
         // Clean quotes from baseDir arg
         String baseDir = args[0].replace("'", "").replace("\"", "");
         System.out.println("Base dir: " + baseDir);
 
-        // === Load data into LOCAL structures that we'll pass to SearchProcessor ===
-        HashSet<String> stoplist = DataLoader.loadStoplist(Paths.get(baseDir, "generated_stoplist.txt").toString());
-
-        Map<String, String> stemmingDictionary =
-                DataLoader.loadStemmingDictionary(Paths.get(baseDir, "stemming_dictionary.txt").toString());
+        // The index, document map and caches live in one snapshot that `reload` (or -WATCH) replaces as a whole.
+        ReloadingContext contexts = new ReloadingContext(baseDir, doStemming, snippetCacheBytes, snippetThreads,
+                snippetDeadlineMillis, queryCacheBytes, queryCacheTtlSeconds);
 
-        // Load id -> filename map, then rewrite to absolute paths under baseDir
-        Map<Integer, String> documentIdToFilename =
-                DataLoader.loadDocumentIdMap(Paths.get(baseDir, "document_id_map.txt").toString());
+        if (memoryReport) {
+            System.out.println(MemoryReport.describe(contexts.current().invertedIndex));
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> contexts.current().stems.flush()));
+        // Switched on after loading, so the counters describe queries only; JMX can switch them either way.
+        Metrics.setEnabled(metrics);
+        Metrics.registerMBeans();
 
-        // If your HTML files are directly in baseDir, this resolves to <baseDir>/<filename>.
-        // (If they live in a subfolder like "docs", change Paths.get(baseDir) to Paths.get(baseDir, "docs").)
-        Map<Integer, String> fixedDocMap = new HashMap<>();
-        for (Map.Entry<Integer, String> e : documentIdToFilename.entrySet()) {
-            String abs = Paths.get(baseDir).resolve(e.getValue()).toString();
-            fixedDocMap.put(e.getKey(), abs);
+        if (mergeIntervalSeconds > 0) {
+            startSegmentMerger(baseDir, mergeIntervalSeconds);
+        }
+        if (watch) {
+            try {
+                contexts.watch(2000);
+            } catch (IOException e) {
+                System.err.println("Cannot watch " + baseDir + " for changes: " + e.getMessage());
+            }
         }
-        documentIdToFilename = fixedDocMap;
 
-        HashMap<String, HashMap<Integer, List<Integer>>> invertedIndex = new HashMap<>();
-        List<com.myproject.utils.StatClasses.InvertedIndexEntry> invertedIndexEntries = new ArrayList<>();
-        Map<String, Set<Integer>> variantToDocIds = new HashMap<>();
+        if (httpPort >= 0) {
+            try {
+                SearchServer server = new SearchServer(contexts, httpBind, httpPort, workers, httpQueue, snippetSize,
+                        topK, httpMaxTopK);
+                server.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+                System.out.println("Serving /search, /word, /doc, /suggest and /reload on " + server.address());
+            } catch (IOException e) {
+                System.err.println("Error starting HTTP server: " + e.getMessage());
+            }
+            return;
+        }
 
-        DataLoader.loadInvertedIndex(
-                Paths.get(baseDir, "inverted_index.txt").toString(),
-                doStemming,
-                invertedIndex,
-                invertedIndexEntries,
-                variantToDocIds,
-                stemmingDictionary
-        );
+        if (protocol) {
+            serveProtocol(contexts, snippetSize, topK, workers, replies);
+            return;
+        }
 
         // === Interactive query loop ===
         Scanner scanner = new Scanner(System.in);
@@ -63,6 +149,16 @@ public class userRunner {
         System.out.println("  machine learning retrieval");
         System.out.println("  doc 12          (lookup by document id)");
         System.out.println("  word banana     (lookup exact word entry)");
+        System.out.println("  or solar wind   (ranked match on any of the words)");
+        System.out.println("  comput* theory  (trailing * matches any word with that prefix)");
+        System.out.println("  \"ancient rome\" life  (quoted words must appear as an exact phrase)");
+        System.out.println("  rome NEAR/3 empire  (the two words at most 3 positions apart)");
+        System.out.println("  suggest comp    (completions ranked by document frequency)");
+        System.out.println("  cache           (snippet and query cache statistics)");
+        System.out.println("  memory          (heap used by the loaded index)");
+        System.out.println("  profile <query> (the results plus how the query was evaluated and where the time went)");
+        System.out.println("  stats           (latency per search stage, postings, document reads, cache hit rates)");
+        System.out.println("  reload          (load the index from disk again and switch to it)");
         System.out.println("  -SEARCH=QUERY neural networks   (old style, still supported)");
         System.out.println();
 
@@ -76,96 +172,59 @@ public class userRunner {
                 break;
             }
 
-            String searchType;
-            String searchValue;
+            // One snapshot per command, even if a reload lands while it runs.
+            SearchContext context = contexts.current();
 
-            // Back-compat: old "-SEARCH=..." format
-            if (userInput.toLowerCase(Locale.ROOT).startsWith("-search=")) {
-                String[] parts = userInput.split("\\s+", 2);
-                if (parts.length < 2) {
-                    System.out.println("Invalid query format. Use '-SEARCH=TYPE value'.");
-                    continue;
-                }
-                String cmd = parts[0].toUpperCase(Locale.ROOT);
-                searchValue = parts[1];
-
-                if (cmd.equals("-SEARCH=WORD")) {
-                    searchType = "WORD";
-                } else if (cmd.equals("-SEARCH=DOC")) {
-                    searchType = "DOC";
-                } else if (cmd.equals("-SEARCH=QUERY")) {
-                    searchType = "QUERY";
-                } else {
-                    System.out.println("Unknown query command: " + cmd);
-                    continue;
+            if (userInput.equalsIgnoreCase("reload")) {
+                try {
+                    System.out.println(contexts.reload());
+                } catch (IOException e) {
+                    System.out.println(e.getMessage());
                 }
+                continue;
+            }
 
-                // Friendly aliases:
-            } else if (userInput.toLowerCase(Locale.ROOT).startsWith("doc ")) {
-                searchType = "DOC";
-                searchValue = userInput.substring(4).trim();
-            } else if (userInput.toLowerCase(Locale.ROOT).startsWith("word ")) {
-                searchType = "WORD";
-                searchValue = userInput.substring(5).trim();
-
-                // Default: whole line is a free-text QUERY
-            } else {
-                searchType = "QUERY";
-                searchValue = userInput;
+            if (userInput.equalsIgnoreCase("cache")) {
+                System.out.println(context.snippetGenerator.cacheStats());
+                System.out.println("queries: " + context.queryCache.stats());
+                continue;
             }
 
-            try {
-                QueryResult result = null;
-
-                switch (searchType) {
-                    case "WORD":
-                        result = SearchProcessor.searchByWord(
-                                searchValue.toLowerCase(Locale.ROOT),
-                                doStemming,
-                                invertedIndex,
-                                documentIdToFilename,
-                                snippetSize,
-                                stemmingDictionary
-                        );
-                        break;
+            if (userInput.equalsIgnoreCase("stats")) {
+                System.out.print(Metrics.report());
+                continue;
+            }
 
-                    case "DOC":
-                        int docId;
-                        try {
-                            docId = Integer.parseInt(searchValue.trim());
-                        } catch (NumberFormatException nfe) {
-                            System.out.println("Invalid document id: " + searchValue);
-                            continue;
-                        }
-                        result = SearchProcessor.searchByDocument(docId, invertedIndex);
-                        break;
+            if (userInput.equalsIgnoreCase("memory")) {
+                System.out.print(MemoryReport.describe(context.invertedIndex));
+                continue;
+            }
 
-                    case "QUERY":
-                        result = SearchProcessor.searchByQuery(
-                                searchValue,
-                                doStemming,
-                                invertedIndex,
-                                stoplist,
-                                documentIdToFilename,
-                                snippetSize,
-                                stemmingDictionary
-                        );
-                        break;
+            try {
+                QueryResult result = runCommand(userInput, context, snippetSize, topK);
+                if (result.profile != null) {
+                    System.out.println("Profile: " + result.profile);
+                }
 
-                    default:
-                        System.out.println("Unknown search type: " + searchType);
-                        continue;
+                if (!result.suggestions.isEmpty()) {
+                    for (Map.Entry<String, Integer> suggestion : result.suggestions.entrySet()) {
+                        System.out.println(suggestion.getKey() + "  (" + suggestion.getValue() + " documents)");
+                    }
+                    continue;
                 }
 
-                if (result == null || result.retrievedDocIds == null || result.retrievedDocIds.isEmpty()) {
-                    System.out.println("No results found for: " + searchValue);
+                if (result.retrievedDocIds.isEmpty()) {
+                    System.out.println("No results found for: " + result.queryString);
                     continue;
                 }
 
-                System.out.println("Query: " + searchValue);
+                System.out.println("Query: " + result.queryString);
                 for (Integer id : result.retrievedDocIds) {
-                    String fname = documentIdToFilename.getOrDefault(id, "(unknown)");
+                    String fname = context.documentIdToFilename.getOrDefault(id, "(unknown)");
                     System.out.println("Document ID: " + id + "  |  " + fname);
+                    if (result.docIdToScore.containsKey(id)) {
+                        System.out.printf(Locale.ROOT, "Score: %.4f%n", result.docIdToScore.get(id));
+                    }
 
                     if (result.docIdToSnippet != null) {
                         String snip = result.docIdToSnippet.get(id);
@@ -177,6 +236,8 @@ public class userRunner {
                     }
                 }
 
+            } catch (IllegalArgumentException iae) {
+                System.out.println(iae.getMessage());
             } catch (IOException ioe) {
                 System.out.println("Error processing query: " + ioe.getMessage());
             } catch (Exception e) {
@@ -186,4 +247,237 @@ public class userRunner {
 
         scanner.close();
     }
+
+    // Compacts the incremental segments written by `Indexer -ADD` on a daemon thread. Merging only rewrites files
+    // on disk; the index this process has loaded is unaffected until the next reload.
+    private static void startSegmentMerger(String baseDir, long intervalSeconds) {
+        ScheduledExecutorService merger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "segment-merger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        merger.scheduleWithFixedDelay(() -> {
+            if (!SegmentSet.exists(baseDir)) {
+                return;
+            }
+            try {
+                String merged;
+                while ((merged = SegmentSet.mergeOnce(baseDir)) != null) {
+                    System.err.println("Segments " + merged);
+                }
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Segment merge failed: " + e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    // Parses one line of the query syntax shared by the interactive loop and protocol mode and runs it.
+    // Malformed input is reported as IllegalArgumentException; queryString is set to the searched value.
+    // A leading "profile " attaches a QueryProfile to the result of a query.
+    static QueryResult runCommand(String userInput, SearchContext context, int snippetSize, int topK)
+            throws IOException {
+        String searchType;
+        String searchValue;
+        boolean disjunctive = false;
+        boolean profile = false;
+
+        if (userInput.toLowerCase(Locale.ROOT).startsWith("profile ")) {
+            profile = true;
+            userInput = userInput.substring("profile ".length()).trim();
+        }
+
+        // Back-compat: old "-SEARCH=..." format
+        if (userInput.toLowerCase(Locale.ROOT).startsWith("-search=")) {
+            String[] parts = userInput.split("\\s+", 2);
+            if (parts.length < 2) {
+                throw new IllegalArgumentException("Invalid query format. Use '-SEARCH=TYPE value'.");
+            }
+            String cmd = parts[0].toUpperCase(Locale.ROOT);
+            searchValue = parts[1];
+
+            if (cmd.equals("-SEARCH=WORD")) {
+                searchType = "WORD";
+            } else if (cmd.equals("-SEARCH=DOC")) {
+                searchType = "DOC";
+            } else if (cmd.equals("-SEARCH=QUERY")) {
+                searchType = "QUERY";
+                searchValue = QueryParser.unquoteArgument(searchValue);
+            } else if (cmd.equals("-SEARCH=SUGGEST")) {
+                searchType = "SUGGEST";
+            } else {
+                throw new IllegalArgumentException("Unknown query command: " + cmd);
+            }
+
+            // Friendly aliases:
+        } else if (userInput.toLowerCase(Locale.ROOT).startsWith("doc ")) {
+            searchType = "DOC";
+            searchValue = userInput.substring(4).trim();
+        } else if (userInput.toLowerCase(Locale.ROOT).startsWith("or ")) {
+            searchType = "QUERY";
+            searchValue = userInput.substring(3).trim();
+            disjunctive = true;
+        } else if (userInput.toLowerCase(Locale.ROOT).startsWith("word ")) {
+            searchType = "WORD";
+            searchValue = userInput.substring(5).trim();
+        } else if (userInput.toLowerCase(Locale.ROOT).startsWith("suggest ")) {
+            searchType = "SUGGEST";
+            searchValue = userInput.substring(8).trim();
+
+            // Default: whole line is a free-text QUERY
+        } else {
+            searchType = "QUERY";
+            searchValue = userInput;
+        }
+
+        QueryResult result;
+        switch (searchType) {
+            case "WORD":
+                result = SearchProcessor.searchByWord(searchValue.toLowerCase(Locale.ROOT), context, snippetSize);
+                break;
+
+            case "DOC":
+                int docId;
+                try {
+                    docId = Integer.parseInt(searchValue.trim());
+                } catch (NumberFormatException nfe) {
+                    throw new IllegalArgumentException("Invalid document id: " + searchValue);
+                }
+                result = SearchProcessor.searchByDocument(docId, context.invertedIndex);
+                break;
+
+            case "SUGGEST":
+                result = SearchProcessor.suggest(searchValue, context.invertedIndex, Autocomplete.MAX_SUGGESTIONS);
+                break;
+
+            default:
+                result = SearchProcessor.searchByQuery(searchValue, context, snippetSize, disjunctive, topK, profile);
+                break;
+        }
+        if (result == null) {
+            result = new QueryResult();
+        }
+        result.queryString = searchValue;
+        return result;
+    }
+
+    // Multiplexed protocol for a client that keeps one warm JVM busy with many requests at once.
+    //   request : <id> TAB <query in the interactive syntax>
+    //   control : "cancel <id>", "cache", "stats", "reload", "exit" (waits for outstanding requests)
+    //   reply   : one JSON line per request, written as soon as it completes, so replies can arrive out of
+    //             order: {"id": ..., "query": ..., "results": [...]} or {"id": ..., "error": ...}
+    // Requests run on a fixed pool over the shared, read-only index; the caches are thread-safe. Each request takes
+    // the current snapshot when it starts, so a reload never changes the index under a running query.
+    private static void serveProtocol(ReloadingContext contexts, int snippetSize, int topK, int workers, PrintStream replies) {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, workers));
+        Map<String, Future<?>> pending = new ConcurrentHashMap<>();
+        send(replies, reply(null, "ready", true));
+
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab < 0) {
+                    String command = line.trim();
+                    if (command.isEmpty()) {
+                        continue;
+                    }
+                    if (command.equalsIgnoreCase("exit")) {
+                        break;
+                    }
+                    if (command.equalsIgnoreCase("cache")) {
+                        SearchContext context = contexts.current();
+                        send(replies, reply(null, "snippets", context.snippetGenerator.cacheStats(), "queries",
+                                context.queryCache.stats()));
+                    } else if (command.equalsIgnoreCase("stats")) {
+                        send(replies, reply(null, "stats", Metrics.report()));
+                    } else if (command.equalsIgnoreCase("reload")) {
+                        // Answered on this thread: requests read after it see the new index.
+                        try {
+                            send(replies, reply(null, "reloaded", contexts.reload()));
+                        } catch (IOException e) {
+                            send(replies, reply(null, "error", e.getMessage()));
+                        }
+                    } else if (command.toLowerCase(Locale.ROOT).startsWith("cancel ")) {
+                        String id = command.substring("cancel ".length()).trim();
+                        Future<?> task = pending.remove(id);
+                        if (task != null) {
+                            task.cancel(true);
+                            send(replies, reply(id, "error", "canceled"));
+                        }
+                    } else {
+                        send(replies, reply(null, "error", "Expected '<id>\\t<query>': " + command));
+                    }
+                    continue;
+                }
+
+                String id = line.substring(0, tab).trim();
+                String query = line.substring(tab + 1).trim();
+                // Whoever removes the id from pending (the task on completion, or a cancel) sends its only reply. A
+                // finishing task removes only its own entry: once canceled, its id may already name a new request.
+                AtomicReference<Future<?>> self = new AtomicReference<>();
+                FutureTask<Void> task = new FutureTask<>(() -> {
+                    String response;
+                    try {
+                        SearchContext context = contexts.current();
+                        QueryResult result = runCommand(query, context, snippetSize, topK);
+                        long lap = Metrics.now();
+                        StringWriter text = new StringWriter();
+                        JsonWriter json = new JsonWriter(text).beginObject();
+                        json.name("id").value(id);
+                        StatClasses.writeResultMembers(json, result, context.documentIdToFilename);
+                        json.endObject();
+                        response = text.toString();
+                        Metrics.SERIALIZE.since(lap);
+                    } catch (IllegalArgumentException e) {
+                        response = reply(id, "error", e.getMessage());
+                    } catch (Exception e) {
+                        response = reply(id, "error", "Error processing query: " + e.getMessage());
+                    }
+                    if (pending.remove(id, self.get())) {
+                        send(replies, response);
+                    }
+                    return null;
+                });
+                self.set(task);
+                if (pending.putIfAbsent(id, task) != null) {
+                    send(replies, reply(id, "error", "Request id already in use"));
+                    continue;
+                }
+                executor.execute(task);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading requests: " + e.getMessage());
+        }
+
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // A control or error reply, {"id": id, name: value, ...}, from name/value pairs.
+    private static String reply(String id, Object... members) {
+        StringWriter text = new StringWriter();
+        try {
+            JsonWriter json = new JsonWriter(text).beginObject();
+            json.name("id").value(id);
+            for (int i = 0; i < members.length; i += 2) {
+                json.name((String) members[i]).value(members[i + 1]);
+            }
+            json.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // a StringWriter does not fail
+        }
+        return text.toString();
+    }
+
+    // Replies are whole lines; the lock keeps concurrent completions from interleaving.
+    private static void send(PrintStream replies, String line) {
+        synchronized (replies) {
+            replies.println(line);
+            replies.flush();
+        }
+    }
 }
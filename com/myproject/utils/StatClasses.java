@@ -15,90 +15,151 @@ import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.JTextArea;
 import javax.swing.SwingUtilities;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
 
 public class StatClasses {
 
 
-    // Define a class to store inverted index entries for easy access
-    public static class InvertedIndexEntry {
-        public String word;  // Now public
-        public int docId;   // Now public
-        public List<Integer> positions; // Now public
-
-        public InvertedIndexEntry(String word, int docId, List<Integer> positions) { // Now public
-            this.word = word;
-            this.docId = docId;
-            this.positions = positions;
-        }
-    }
-
     // Class to store query results
     public static class QueryResult {
         public String queryString;
         public Set<Integer> retrievedDocIds; // Set of retrieved document IDs
         public Map<Integer, String> docIdToSnippet; // Map of docId to snippets
+        public Map<Integer, Double> docIdToScore; // BM25 score per docId (ranked queries only)
 
         public Map<String, Integer> wordFrequencies; // For storing word frequencies (searchByDocument)
         public Map<String, List<Integer>> wordPositions; // For storing word positions (getIndexByDocument)
+        public Map<String, Integer> suggestions; // Completions of a prefix with their document frequency (suggest)
+        public QueryProfile profile; // How the query was evaluated, when profiling was requested (otherwise null)
 
         public QueryResult() {
             docIdToSnippet = new LinkedHashMap<>();
+            docIdToScore = new LinkedHashMap<>();
             retrievedDocIds = new LinkedHashSet<>();
             wordFrequencies = new LinkedHashMap<>();
             wordPositions = new LinkedHashMap<>();
+            suggestions = new LinkedHashMap<>();
+        }
+
+        // Copy with its own collections, so a cached result can be handed out and modified safely.
+        // The profile describes one execution and is not copied.
+        public QueryResult copy() {
+            QueryResult copy = new QueryResult();
+            copy.queryString = queryString;
+            copy.retrievedDocIds.addAll(retrievedDocIds);
+            copy.docIdToSnippet.putAll(docIdToSnippet);
+            copy.docIdToScore.putAll(docIdToScore);
+            copy.wordFrequencies.putAll(wordFrequencies);
+            copy.wordPositions.putAll(wordPositions);
+            copy.suggestions.putAll(suggestions);
+            return copy;
+        }
+    }
+
+    // Class to store the breakdown of one query's evaluation (-PROFILE)
+    public static class QueryProfile {
+        public Map<String, Integer> docFreqs = new LinkedHashMap<>(); // query word or prefix* -> document frequency
+        public List<String> stopwords = new ArrayList<>(); // query words dropped by the stoplist
+        public String strategy; // conjunction, wand (OR), positional (phrases / NEAR), cache or none
+        public List<String> evaluationOrder = new ArrayList<>(); // lists in the order they are intersected
+        public List<Integer> candidates = new ArrayList<>(); // documents left after each step of evaluationOrder
+        public int matches; // documents that satisfied the query and were scored
+        public int documentsRead; // snippets cut from document files
+        public int storeSnippets; // snippets cut from the pre-tokenised document store
+        public int cachedSnippets; // snippets served from the snippet cache
+        public int cachedDocuments; // snippets cut from a cached, already tokenised document
+        public Map<String, Long> phaseMicros = new LinkedHashMap<>(); // analyze, match, snippets, total
+
+        public void write(JsonWriter json) throws IOException {
+            json.beginObject();
+            json.name("docFreqs").value(docFreqs);
+            json.name("stopwords").value(stopwords);
+            json.name("strategy").value(strategy);
+            json.name("evaluationOrder").value(evaluationOrder);
+            json.name("candidates").value(candidates);
+            json.name("matches").value(matches);
+            json.name("documentsRead").value(documentsRead);
+            json.name("storeSnippets").value(storeSnippets);
+            json.name("cachedSnippets").value(cachedSnippets);
+            json.name("cachedDocuments").value(cachedDocuments);
+            json.name("phaseMicros").value(phaseMicros);
+            json.endObject();
+        }
+
+        @Override
+        public String toString() {
+            StringWriter text = new StringWriter();
+            try {
+                write(new JsonWriter(text));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // a StringWriter does not fail
+            }
+            return text.toString();
         }
     }
-    // Method to write batch results to output file in JSON format
-    public static void writeBatchResultsToFile(List<QueryResult> allResults, BufferedWriter writer, Map<Integer, String> documentIdToFilename)
+    // One result as {"query": ..., "results": [...]}; shared by batch output (one per line), userRunner's protocol
+    // mode and the HTTP server
+    public static void writeResult(JsonWriter json, QueryResult result, Map<Integer, String> documentIdToFilename)
             throws IOException {
-        for (QueryResult result : allResults) {
-            JSONObject jsonResult = new JSONObject();
-            jsonResult.put("query", result.queryString);
-
-            JSONArray docArray = new JSONArray();
-
-            if (result.wordFrequencies != null && !result.wordFrequencies.isEmpty()) {
-                // Output word frequencies
-                for (Map.Entry<String, Integer> entry : result.wordFrequencies.entrySet()) {
-                    JSONObject frequencyObject = new JSONObject();
-                    frequencyObject.put("word", entry.getKey());
-                    frequencyObject.put("frequency", entry.getValue());
-                    docArray.add(frequencyObject);
-                }
-            } else if (result.wordPositions != null && !result.wordPositions.isEmpty()) {
-                // Output word positions
-                for (Map.Entry<String, List<Integer>> entry : result.wordPositions.entrySet()) {
-                    JSONObject positionObject = new JSONObject();
-                    positionObject.put("word", entry.getKey());
-                    positionObject.put("docId", result.retrievedDocIds.iterator().next());
-                    positionObject.put("positions", entry.getValue());
-                    docArray.add(positionObject);
-                }
-            } else if (result.retrievedDocIds.isEmpty()) {
-                // No results case
-                JSONObject noResultObject = new JSONObject();
-                noResultObject.put("message", "No results found.");
-                docArray.add(noResultObject);
-            } else {
-                // Regular search results
-                for (Integer docId : result.retrievedDocIds) {
-                    String docName = documentIdToFilename.get(docId);
-                    String snippet = result.docIdToSnippet.get(docId);
-                    JSONObject docObject = new JSONObject();
-                    docObject.put("docName", docName);
-                    docObject.put("snippet", snippet);
-                    docArray.add(docObject);
+        json.beginObject();
+        writeResultMembers(json, result, documentIdToFilename);
+        json.endObject();
+    }
+
+    // The members of writeResult's object, for callers that add their own (such as a request id)
+    public static void writeResultMembers(JsonWriter json, QueryResult result, Map<Integer, String> documentIdToFilename)
+            throws IOException {
+        json.name("query").value(result.queryString);
+        json.name("results").beginArray();
+
+        if (result.wordFrequencies != null && !result.wordFrequencies.isEmpty()) {
+            // Output word frequencies
+            for (Map.Entry<String, Integer> entry : result.wordFrequencies.entrySet()) {
+                json.beginObject();
+                json.name("word").value(entry.getKey());
+                json.name("frequency").value(entry.getValue());
+                json.endObject();
+            }
+        } else if (result.suggestions != null && !result.suggestions.isEmpty()) {
+            // Output completions, most frequent first
+            for (Map.Entry<String, Integer> entry : result.suggestions.entrySet()) {
+                json.beginObject();
+                json.name("term").value(entry.getKey());
+                json.name("docFreq").value(entry.getValue());
+                json.endObject();
+            }
+        } else if (result.wordPositions != null && !result.wordPositions.isEmpty()) {
+            // Output word positions
+            for (Map.Entry<String, List<Integer>> entry : result.wordPositions.entrySet()) {
+                json.beginObject();
+                json.name("word").value(entry.getKey());
+                json.name("docId").value(result.retrievedDocIds.iterator().next());
+                json.name("positions").value(entry.getValue());
+                json.endObject();
+            }
+        } else if (result.retrievedDocIds.isEmpty()) {
+            // No results case
+            json.beginObject();
+            json.name("message").value("No results found.");
+            json.endObject();
+        } else {
+            // Regular search results
+            for (Integer docId : result.retrievedDocIds) {
+                json.beginObject();
+                json.name("docName").value(documentIdToFilename.get(docId));
+                json.name("snippet").value(result.docIdToSnippet.get(docId));
+                Double score = result.docIdToScore.get(docId);
+                if (score != null) {
+                    json.name("score").value(score.doubleValue());
                 }
+                json.endObject();
             }
+        }
 
-            jsonResult.put("results", docArray);
-            System.out.println(jsonResult.toJSONString());
-            writer.write(jsonResult.toJSONString() + "\n");
+        json.endArray();
+        if (result.profile != null) {
+            json.name("profile");
+            result.profile.write(json);
         }
     }
 
@@ -139,6 +200,13 @@ public class StatClasses {
                         entryLabel.setAlignmentX(JLabel.LEFT_ALIGNMENT);
                         snippetsPanel.add(entryLabel);
                     }
+                } else if (result.suggestions != null && !result.suggestions.isEmpty()) {
+                    // For suggest
+                    for (Map.Entry<String, Integer> entry : result.suggestions.entrySet()) {
+                        JLabel entryLabel = new JLabel(entry.getKey() + " (" + entry.getValue() + " documents)");
+                        entryLabel.setAlignmentX(JLabel.LEFT_ALIGNMENT);
+                        snippetsPanel.add(entryLabel);
+                    }
                 } else if (result.wordPositions != null && !result.wordPositions.isEmpty()) {
                     // For getIndexByDocument
                     // Write header line
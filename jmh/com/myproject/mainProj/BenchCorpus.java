@@ -0,0 +1,122 @@
+package com.myproject.mainProj;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// **File:** BenchCorpus.java
+// **Purpose:** The index and queries the JMH benchmarks run against. -Dbench.corpus=<index dir> benchmarks an
+// existing index; otherwise a SyntheticCorpus of -Dbench.docs documents (default 50,000: about 10M tokens and
+// 6M postings) is generated once under -Dbench.dir and reused by every later fork and run of the same size.
+// Query sets are built from the loaded index, so they work for either.
+final class BenchCorpus {
+
+    private BenchCorpus() {
+    }
+
+    static synchronized String directory() throws IOException {
+        String existing = System.getProperty("bench.corpus");
+        if (existing != null && !existing.isEmpty()) {
+            return existing;
+        }
+        int docs = Integer.getInteger("bench.docs", 50_000);
+        Path dir = Paths.get(System.getProperty("bench.dir", "build/jmh-corpus"), "docs-" + docs);
+        Path done = dir.resolve("corpus.done");
+        if (!Files.exists(done)) {
+            // The content words of the sample queries join the vocabulary, so those queries have answers.
+            Set<String> stopwords = new HashSet<>(Arrays.asList(Indexer.ENGLISH_STOPWORDS));
+            Set<String> seedWords = new LinkedHashSet<>();
+            for (String query : bareAppQueries()) {
+                for (String word : Analyzer.tokens(query, false)) {
+                    if (word.length() > 1 && !stopwords.contains(word)) {
+                        seedWords.add(word);
+                    }
+                }
+            }
+            SyntheticCorpus.generate(dir, docs, SyntheticCorpus.DEFAULT_DOC_LENGTH, new ArrayList<>(seedWords));
+            Files.createFile(done);
+        }
+        return dir.toString();
+    }
+
+    // A warm, uncached context: both caches are sized 0 and snippets run on the calling thread.
+    static SearchContext context(String directory) {
+        return new ReloadingContext(directory, false, 0, 1, 60_000, 0, 0).current();
+    }
+
+    // The text of every -SEARCH=QUERY line in bare_app/queries.txt (-Dbench.queries overrides the path).
+    static List<String> bareAppQueries() throws IOException {
+        List<String> queries = new ArrayList<>();
+        Path file = Paths.get(System.getProperty("bench.queries", "bare_app/queries.txt"));
+        for (String line : Files.readAllLines(file)) {
+            String[] parts = line.trim().split("\\s+", 2);
+            if (parts.length == 2 && parts[0].equalsIgnoreCase("-SEARCH=QUERY")) {
+                queries.add(QueryParser.unquoteArgument(parts[1]));
+            }
+        }
+        return queries;
+    }
+
+    // The queries of one set; disjunctive(set) says which mode they run in.
+    static String[] queries(String set, InvertedIndex index) throws IOException {
+        if (set.equals("bare_app")) {
+            return bareAppQueries().toArray(new String[0]);
+        }
+        String[] common = termsByDocFreq(index, 0, 10);
+        String[] rare = termsByDocFreq(index, index.termCount() / 2, 10);
+        String[] queries = new String[8];
+        for (int i = 0; i < queries.length; i++) {
+            switch (set) {
+                case "mixed":
+                    queries[i] = common[i] + " " + rare[i];
+                    break;
+                case "phrase":
+                    queries[i] = "\"" + common[i] + " " + common[i + 1] + "\"";
+                    break;
+                default:
+                    queries[i] = common[i] + " " + common[(i + 1) % 10]
+                            + (i % 2 == 0 ? " " + common[(i + 3) % 10] : "");
+                    break;
+            }
+        }
+        return queries;
+    }
+
+    static boolean disjunctive(String set) {
+        return set.endsWith("_or");
+    }
+
+    // The terms at ranks fromRank .. fromRank + count - 1 by descending document frequency.
+    static String[] termsByDocFreq(InvertedIndex index, int fromRank, int count) {
+        Integer[] termIds = new Integer[index.termCount()];
+        for (int t = 0; t < termIds.length; t++) {
+            termIds[t] = t;
+        }
+        Arrays.sort(termIds, (a, b) -> Integer.compare(index.docFreq(b), index.docFreq(a)));
+        String[] terms = new String[Math.min(count, Math.max(0, termIds.length - fromRank))];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = index.term(termIds[fromRank + i]);
+        }
+        return terms;
+    }
+
+    // Distinct indexed words of a query set, for single-word lookups.
+    static String[] words(String[] queries, SearchContext context) {
+        Set<String> words = new LinkedHashSet<>();
+        for (String query : queries) {
+            for (String word : Analyzer.tokens(query, false)) {
+                if (context.termId(word) >= 0) {
+                    words.add(word);
+                }
+            }
+        }
+        return words.toArray(new String[0]);
+    }
+}
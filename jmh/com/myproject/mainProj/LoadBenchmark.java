@@ -0,0 +1,52 @@
+package com.myproject.mainProj;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// **File:** LoadBenchmark.java
+// **Purpose:** Startup cost: parsing inverted_index.txt (optionally stemming every term) against opening the
+// compiled, memory-mapped inverted_index.bin. Each load is one timed shot.
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean stemming;
+
+    private String directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = BenchCorpus.directory();
+    }
+
+    @Benchmark
+    public InvertedIndex loadText() {
+        // A fresh cache per load, so every term is stemmed as on a cold start.
+        return DataLoader.loadInvertedIndex(Paths.get(directory, "inverted_index.txt").toString(), stemming,
+                stemming ? StemCache.open(directory) : null);
+    }
+
+    @Benchmark
+    public InvertedIndex loadSegment() {
+        return DataLoader.loadInvertedIndexSegment(Paths.get(directory, IndexSegment.FILE_NAME).toString(), false);
+    }
+}
@@ -0,0 +1,67 @@
+package com.myproject.mainProj;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.myproject.utils.StatClasses.QueryResult;
+
+// **File:** SearchBenchmark.java
+// **Purpose:** End-to-end query latency through SearchProcessor with the query and snippet caches off, so every
+// invocation does the full work: parse, intersect or union, rank, and cut snippets for the top 20. Each
+// invocation runs the next query of the set in turn; the score is the average over the set.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark {
+
+    private static final int SNIPPET_SIZE = 5;
+    private static final int TOP_K = 20;
+
+    @Param({ "bare_app", "high_df", "high_df_or", "mixed", "phrase" })
+    public String queries;
+
+    private SearchContext context;
+    private String[] queryList;
+    private String[] words;
+    private boolean disjunctive;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchCorpus.context(BenchCorpus.directory());
+        queryList = BenchCorpus.queries(queries, context.invertedIndex);
+        words = BenchCorpus.words(queryList, context);
+        disjunctive = BenchCorpus.disjunctive(queries);
+        if (queryList.length == 0 || words.length == 0) {
+            throw new IllegalStateException("Query set " + queries + " has no indexed words");
+        }
+    }
+
+    @Benchmark
+    public QueryResult searchByQuery() throws IOException {
+        String query = queryList[next++ % queryList.length];
+        return SearchProcessor.searchByQuery(query, context, SNIPPET_SIZE, disjunctive, TOP_K);
+    }
+
+    // Unranked: every document containing the word gets a snippet, so this grows with document frequency.
+    @Benchmark
+    public QueryResult searchByWord() throws IOException {
+        return SearchProcessor.searchByWord(words[next++ % words.length], context, SNIPPET_SIZE);
+    }
+}
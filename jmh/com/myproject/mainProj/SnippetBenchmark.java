@@ -0,0 +1,75 @@
+package com.myproject.mainProj;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// **File:** SnippetBenchmark.java
+// **Purpose:** One result page of snippets (20 hits at their matching positions), cut either from the
+// pre-tokenized documents.bin or by reading and tokenizing the HTML files. Caches are off and hits are drawn from
+// a pool large enough that the OS page cache, not a warm document, is the best case.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SnippetBenchmark {
+
+    private static final int PAGE = 20;
+    private static final int POOL = 4096;
+    private static final int SNIPPET_SIZE = 5;
+
+    @Param({ "store", "html" })
+    public String source;
+
+    private SnippetGenerator generator;
+    private final int[][] docIds = new int[POOL / PAGE][PAGE];
+    private final int[][] positions = new int[POOL / PAGE][PAGE];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String directory = BenchCorpus.directory();
+        SearchContext context = BenchCorpus.context(directory);
+        DocumentStore store = source.equals("store")
+                ? DataLoader.loadDocumentStore(Paths.get(directory, DocumentStore.FILE_NAME).toString()) : null;
+        if (source.equals("store") && store == null) {
+            throw new IllegalStateException("No " + DocumentStore.FILE_NAME + " in " + directory);
+        }
+        generator = new SnippetGenerator(context.documentIdToFilename, store, 0, null, 60_000);
+
+        // Hits of mid-frequency terms, as a ranked query would return them.
+        InvertedIndex index = context.invertedIndex;
+        String[] terms = BenchCorpus.termsByDocFreq(index, 50, 200);
+        Random random = new Random(7);
+        for (int page = 0; page < docIds.length; page++) {
+            for (int i = 0; i < PAGE; i++) {
+                Postings postings = index.postings(terms[random.nextInt(terms.length)]);
+                int k = random.nextInt(postings.docFreq());
+                docIds[page][i] = postings.docId(k);
+                positions[page][i] = postings.positions(k)[0];
+            }
+        }
+    }
+
+    @Benchmark
+    public String[] generateSnippets() {
+        int page = next++ % docIds.length;
+        return generator.generateSnippets(docIds[page], positions[page], SNIPPET_SIZE);
+    }
+}
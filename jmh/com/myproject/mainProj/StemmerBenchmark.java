@@ -0,0 +1,79 @@
+package com.myproject.mainProj;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// **File:** StemmerBenchmark.java
+// **Purpose:** Per-word stemming cost: PorterStemmer on Strings, the in-place char[] API, and a StemCache hit,
+// which is what a query pays for a word it has seen before. Scores are per word. Needs no corpus.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StemmerBenchmark {
+
+    private static final int WORDS = 4096;
+
+    private final String[] words = new String[WORDS];
+    private final PorterStemmer stemmer = new PorterStemmer();
+    private final char[] buffer = new char[64];
+    private StemCache cache;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // A uniform sample of the synthetic vocabulary, so every suffix class is equally common.
+        List<String> vocabulary = SyntheticCorpus.vocabulary(new ArrayList<>());
+        Random random = new Random(11);
+        for (int i = 0; i < WORDS; i++) {
+            words[i] = vocabulary.get(random.nextInt(vocabulary.size()));
+        }
+        cache = new StemCache(new HashMap<>(), null, StemCache.MAX_LEARNED);
+        for (String word : words) {
+            cache.stem(word);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public void stemString(Blackhole blackhole) {
+        for (String word : words) {
+            blackhole.consume(PorterStemmer.stem(word));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public void stemChars(Blackhole blackhole) {
+        for (String word : words) {
+            word.getChars(0, word.length(), buffer, 0);
+            blackhole.consume(stemmer.stem(buffer, word.length()));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WORDS)
+    public void stemCacheHit(Blackhole blackhole) {
+        for (String word : words) {
+            blackhole.consume(cache.stem(word));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.myproject.mainProj;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+// **File:** SyntheticCorpus.java
+// **Purpose:** Generates HTML documents whose words follow a Zipf distribution over a made-up vocabulary, then
+// indexes and compiles them with the production code (Indexer, -COMPILE_INDEX), so benchmarks can run against
+// millions of postings without a real crawl. Words are built from consonant-vowel syllables plus common English
+// suffixes, so stemming has real work to do. Optional seed words (e.g. from bare_app/queries.txt) are given
+// ranks spread over the head of the distribution, so those queries find documents.
+// Run standalone with: SyntheticCorpus <dir> <docs> [tokensPerDoc]
+public final class SyntheticCorpus {
+
+    static final int VOCABULARY = 50_000;
+    static final int DEFAULT_DOC_LENGTH = 200;
+    private static final String CONSONANTS = "bcdfghklmnprstvz";
+    private static final String VOWELS = "aeiou";
+    private static final String[] SUFFIXES = { "", "s", "ing", "ed", "ation", "ness", "ful", "ly" };
+    private static final long SEED = 42;
+
+    private SyntheticCorpus() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: SyntheticCorpus <dir> <docs> [tokensPerDoc]");
+            return;
+        }
+        int docLength = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_DOC_LENGTH;
+        generate(Paths.get(args[0]), Integer.parseInt(args[1]), docLength, new ArrayList<>());
+    }
+
+    // The vocabulary in rank order (rank 0 is the most frequent word).
+    static List<String> vocabulary(List<String> seedWords) {
+        List<String> words = new ArrayList<>(VOCABULARY);
+        Set<String> seen = new LinkedHashSet<>(seedWords);
+        for (int n = 0; words.size() < VOCABULARY; n++) {
+            String word = word(n);
+            if (seen.add(word)) {
+                words.add(word);
+            }
+        }
+        // Seed words take ranks 10, 17, 24, ...: frequent enough for multi-word AND queries to match, rare enough
+        // to be selective.
+        int rank = 10;
+        for (String seed : seedWords) {
+            if (rank >= VOCABULARY) {
+                break;
+            }
+            words.add(rank, seed);
+            words.remove(words.size() - 1);
+            rank += 7;
+        }
+        return words;
+    }
+
+    // At least two syllables, so no generated word is a single letter or a two-letter function word.
+    static String word(int n) {
+        StringBuilder word = new StringBuilder();
+        int syllables = CONSONANTS.length() * VOWELS.length();
+        for (int value = n / SUFFIXES.length + syllables; value > 0; value /= syllables) {
+            int syllable = value % syllables;
+            word.append(CONSONANTS.charAt(syllable / VOWELS.length()))
+                    .append(VOWELS.charAt(syllable % VOWELS.length()));
+        }
+        return word.append(SUFFIXES[n % SUFFIXES.length]).toString();
+    }
+
+    public static void generate(Path dir, int docs, int docLength, List<String> seedWords) throws IOException {
+        Files.createDirectories(dir);
+        List<String> vocabulary = vocabulary(seedWords);
+        double[] cdf = new double[vocabulary.size()];
+        double sum = 0;
+        for (int rank = 0; rank < cdf.length; rank++) {
+            sum += 1.0 / (rank + 1);
+            cdf[rank] = sum;
+        }
+        for (int rank = 0; rank < cdf.length; rank++) {
+            cdf[rank] /= sum;
+        }
+
+        long start = System.nanoTime();
+        Random random = new Random(SEED);
+        StringBuilder html = new StringBuilder();
+        int digits = String.valueOf(docs).length();
+        Map<Integer, String> documentPaths = new HashMap<>();
+        for (int doc = 0; doc < docs; doc++) {
+            html.setLength(0);
+            html.append("<html><body><p>");
+            for (int i = 0; i < docLength; i++) {
+                if (i > 0) {
+                    html.append(i % 50 == 0 ? "</p>\n<p>" : " ");
+                }
+                int rank = Arrays.binarySearch(cdf, random.nextDouble());
+                html.append(vocabulary.get(Math.min(rank < 0 ? -rank - 1 : rank, cdf.length - 1)));
+            }
+            html.append("</p></body></html>\n");
+            String name = String.format("doc%0" + digits + "d.html", doc);
+            try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve(name))) {
+                writer.append(html);
+            }
+            // The Indexer numbers documents from 1 in sorted name order, which is this order.
+            documentPaths.put(doc + 1, dir.resolve(name).toString());
+        }
+        System.out.printf("Generated %,d documents (%,d tokens) in %.1f s%n", docs, (long) docs * docLength,
+                (System.nanoTime() - start) / 1e9);
+
+        String baseDir = dir.toString();
+        Indexer.index(baseDir, baseDir, Runtime.getRuntime().availableProcessors(), 1.0);
+        DataLoader.compileInvertedIndex(dir.resolve("inverted_index.txt").toString(),
+                dir.resolve(IndexSegment.FILE_NAME).toString(), false, null);
+        DocumentStore.write(dir.resolve(DocumentStore.FILE_NAME).toString(), documentPaths);
+    }
+}